@@ -0,0 +1,83 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Many tasks at once, the columnar batch API against calling the epoch second API in a loop.
+ * Durations are a mix of short and multi month tasks, a few percent of rows are invalid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchBenchmark {
+
+    // Below and well above the size batches start running in parallel
+    @Param({"1000", "1000000"})
+    int rows;
+
+    TaskHandlerBridge taskHandler;
+    ZoneId zone;
+    long[] startEpochSeconds;
+    int[] taskDurations;
+    long[] dueDates;
+    byte[] statuses;
+
+    @Setup
+    public void setup() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.OFF);
+        taskHandler = new TaskHandlerBridge(logger);
+        zone = ZoneId.of("America/New_York");
+
+        long monday = ZonedDateTime.of(2024, 9, 2, 9, 0, 0, 0, zone).toEpochSecond();
+        Random random = new Random(42);
+        startEpochSeconds = new long[rows];
+        taskDurations = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            // Any working second Mon-Fri, one row in twenty starts an hour before work
+            int secondOfDay = random.nextInt(20) == 0 ? -3600 : random.nextInt(8 * 3600 + 1);
+            startEpochSeconds[i] = monday + random.nextInt(5) * 86400L + secondOfDay;
+            taskDurations[i] = random.nextBoolean() ? 1 + random.nextInt(16) : 1 + random.nextInt(2000);
+        }
+        dueDates = new long[rows];
+        statuses = new byte[rows];
+    }
+
+    @Benchmark
+    public long[] batch() {
+        taskHandler.batchDueDates.calculate(startEpochSeconds, taskDurations, zone, dueDates, statuses);
+        return dueDates;
+    }
+
+    @Benchmark
+    public long[] loop() {
+        for (int i = 0; i < rows; i++) {
+            try {
+                dueDates[i] = taskHandler.epochSecondDueDate.calculate(startEpochSeconds[i], taskDurations[i], zone);
+            } catch (Exception e) {
+                dueDates[i] = 0;
+            }
+        }
+        return dueDates;
+    }
+}
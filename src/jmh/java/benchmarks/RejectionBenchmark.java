@@ -0,0 +1,57 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Cost of rejecting a task that starts on a weekend, thrown versus reported through a result.
+ * Logging is disabled so only the validation, message and exception cost is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RejectionBenchmark {
+
+    TaskHandlerBridge taskHandler;
+    Object weekendTask;
+
+    @Setup
+    public void setup() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.OFF);
+        taskHandler = new TaskHandlerBridge(logger);
+        ZonedDateTime weekendDate = ZonedDateTime.of(2024, 9, 7, 16, 50, 30, 0, ZoneId.of("America/New_York"));
+        weekendTask = taskHandler.taskFactory.create(weekendDate, 10);
+    }
+
+    @Benchmark
+    public Object thrownRejection() {
+        try {
+            return taskHandler.taskDueDate.calculate(weekendTask);
+        } catch (Exception e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object resultRejection() {
+        return taskHandler.tryTaskDueDate.calculate(weekendTask);
+    }
+}
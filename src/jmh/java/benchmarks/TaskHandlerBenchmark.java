@@ -0,0 +1,87 @@
+package benchmarks;
+
+import cache.DueDateCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single task due date calculations from one hour up to three years of work.
+ * Run with -prof gc to see allocation per operation alongside the timings.
+ * The cached variant repeats one task against a warm cache, compare it with epochSecondDueDate to see what a hit saves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskHandlerBenchmark {
+
+    // One hour, one week and three years of working hours
+    @Param({"1", "40", "6264"})
+    int taskDuration;
+
+    TaskHandlerBridge taskHandler;
+    TaskHandlerBridge cachedTaskHandler;
+    ZoneId zone;
+    ZonedDateTime startDate;
+    long startEpochSecond;
+    Object task;
+
+    @Setup
+    public void setup() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setLevel(Level.OFF);
+        taskHandler = new TaskHandlerBridge(logger);
+        zone = ZoneId.of("America/New_York");
+        startDate = ZonedDateTime.of(2024, 9, 5, 15, 34, 23, 0, zone);
+        startEpochSecond = startDate.toEpochSecond();
+        task = taskHandler.taskFactory.create(startDate, taskDuration);
+        cachedTaskHandler = new TaskHandlerBridge(logger, new DueDateCache(1024));
+    }
+
+    @Benchmark
+    public ZonedDateTime taskDueDate() throws Exception {
+        return taskHandler.taskDueDate.calculate(task);
+    }
+
+    @Benchmark
+    public ZonedDateTime newTaskDueDate() throws Exception {
+        return taskHandler.taskDueDate.calculate(taskHandler.taskFactory.create(startDate, taskDuration));
+    }
+
+    @Benchmark
+    public long epochSecondDueDate() throws Exception {
+        return taskHandler.epochSecondDueDate.calculate(startEpochSecond, taskDuration, zone);
+    }
+
+    @Benchmark
+    public long cachedEpochSecondDueDate() throws Exception {
+        return cachedTaskHandler.epochSecondDueDate.calculate(startEpochSecond, taskDuration, zone);
+    }
+
+    // One shared handler under load from every available core
+    @Benchmark
+    @Threads(Threads.MAX)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public long concurrentEpochSecondDueDate() throws Exception {
+        return taskHandler.epochSecondDueDate.calculate(startEpochSecond, taskDuration, zone);
+    }
+}
@@ -0,0 +1,113 @@
+package benchmarks;
+
+import cache.DueDateCache;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * JMH refuses benchmarks in the default package and Java can not import from it, so Task and TaskHandler
+ * are reached through interfaces spun with LambdaMetafactory. The JIT inlines these like direct calls.
+ */
+final class TaskHandlerBridge {
+
+    interface TaskFactory {
+        Object create(ZonedDateTime startDate, int taskDuration);
+    }
+
+    interface TaskDueDate {
+        ZonedDateTime calculate(Object task) throws Exception;
+    }
+
+    interface TryTaskDueDate {
+        Object calculate(Object task);
+    }
+
+    interface EpochSecondDueDate {
+        long calculate(long startEpochSecond, int taskDuration, ZoneId zone) throws Exception;
+    }
+
+    interface BatchDueDates {
+        int calculate(long[] startEpochSeconds, int[] taskDurations, ZoneId zone, long[] dueDates, byte[] statuses);
+    }
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    final TaskFactory taskFactory;
+    final TaskDueDate taskDueDate;
+    final TryTaskDueDate tryTaskDueDate;
+    final EpochSecondDueDate epochSecondDueDate;
+    final BatchDueDates batchDueDates;
+
+    /**
+     * Binds to a new TaskHandler
+     * @param logger passed to the handler, benchmarks disable it so log output does not skew results
+     */
+    TaskHandlerBridge(Logger logger) {
+        this(logger, null);
+    }
+
+    /**
+     * Binds to a new TaskHandler
+     * @param logger passed to the handler, benchmarks disable it so log output does not skew results
+     * @param cache passed to the handler, null to disable caching
+     */
+    TaskHandlerBridge(Logger logger, DueDateCache cache) {
+        try {
+            Class<?> taskClass = Class.forName("Task");
+            Class<?> handlerClass = Class.forName("TaskHandler");
+            Class<?> builderClass = Class.forName("TaskHandler$Builder");
+            Object builder = handlerClass.getMethod("builder").invoke(null);
+            builderClass.getMethod("logger", Logger.class).invoke(builder, logger);
+            builderClass.getMethod("cache", DueDateCache.class).invoke(builder, cache);
+            Object handler = builderClass.getMethod("build").invoke(builder);
+
+            taskFactory = bind(TaskFactory.class, null,
+                    LOOKUP.findConstructor(taskClass, MethodType.methodType(void.class, ZonedDateTime.class, int.class)));
+            taskDueDate = bind(TaskDueDate.class, handler,
+                    LOOKUP.findVirtual(handlerClass, "calculateDueDate", MethodType.methodType(ZonedDateTime.class, taskClass)));
+            tryTaskDueDate = bind(TryTaskDueDate.class, handler,
+                    LOOKUP.findVirtual(handlerClass, "tryCalculateDueDate", MethodType.methodType(Class.forName("DueDateResult"), taskClass)));
+            epochSecondDueDate = bind(EpochSecondDueDate.class, handler,
+                    LOOKUP.findVirtual(handlerClass, "calculateDueDate", MethodType.methodType(long.class, long.class, int.class, ZoneId.class)));
+            batchDueDates = bind(BatchDueDates.class, handler,
+                    LOOKUP.findVirtual(handlerClass, "calculateDueDates",
+                            MethodType.methodType(int.class, long[].class, int[].class, ZoneId.class, long[].class, byte[].class)));
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("TaskHandler API does not match the benchmarks", e);
+        }
+    }
+
+    // Implements a single method interface with a method handle, bound to the receiver for instance methods
+    private static <T> T bind(Class<T> bridge, Object receiver, MethodHandle target) throws ReflectiveOperationException {
+        Method method = Arrays.stream(bridge.getMethods())
+                .filter(m -> Modifier.isAbstract(m.getModifiers()))
+                .findFirst()
+                .orElseThrow();
+        MethodType methodType = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+        MethodType factoryType = receiver == null
+                ? MethodType.methodType(bridge)
+                : MethodType.methodType(bridge, receiver.getClass());
+        MethodType instantiatedType = receiver == null
+                ? target.type()
+                : target.type().dropParameterTypes(0, 1);
+        try {
+            CallSite site = LambdaMetafactory.metafactory(LOOKUP, method.getName(), factoryType, methodType, target, instantiatedType);
+            Object implementation = receiver == null ? site.getTarget().invoke() : site.getTarget().invoke(receiver);
+            return bridge.cast(implementation);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
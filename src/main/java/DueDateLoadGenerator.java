@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Load generator for {@link DueDateServer}. Each client runs on its own virtual thread and sends single
+ * due date requests back to back, the latency of every request is recorded and summarised as percentiles.
+ * Run it against a server on localhost with
+ * java DueDateLoadGenerator http://localhost:8080 [clients] [requests per client]
+ */
+public class DueDateLoadGenerator {
+
+    private static final int DEFAULT_CLIENTS = 64;
+    private static final int DEFAULT_REQUESTS_PER_CLIENT = 1000;
+
+    private final URI singleUri;
+    private final HttpClient client;
+
+    /**
+     * @param server base address of the server, such as http://localhost:8080
+     */
+    public DueDateLoadGenerator(URI server) {
+        this.singleUri = server.resolve("/duedate");
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * Sends requests from many clients at once and waits for all of them to finish.
+     * Requests cycle through the working hours of a week with lengths of 1 to 40 hours, all valid.
+     * @param clients number of concurrent clients
+     * @param requestsPerClient requests each client sends one after the other
+     * @return latency percentiles and throughput
+     */
+    public LoadReport run(int clients, int requestsPerClient) throws IOException, InterruptedException {
+        ZoneId zone = ZoneId.of("America/New_York");
+        ZonedDateTime monday = ZonedDateTime.of(2024, 9, 2, 9, 0, 0, 0, zone);
+        long startNanos = System.nanoTime();
+        List<Future<long[]>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                int clientIndex = c;
+                results.add(executor.submit(() -> {
+                    long[] latencies = new long[requestsPerClient];
+                    for (int i = 0; i < requestsPerClient; i++) {
+                        int n = clientIndex * requestsPerClient + i;
+                        ZonedDateTime startDate = monday.plusDays(n % 5).plusMinutes(n % (8 * 60));
+                        String body = String.format("{\"startDate\":\"%s\",\"taskDuration\":%d}",
+                                startDate.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME), 1 + n % 40);
+                        HttpRequest request = HttpRequest.newBuilder(singleUri)
+                                .POST(HttpRequest.BodyPublishers.ofString(body))
+                                .build();
+                        long requestStart = System.nanoTime();
+                        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                        latencies[i] = response.statusCode() == 200 ? System.nanoTime() - requestStart : -1;
+                    }
+                    return latencies;
+                }));
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        long[] latencies = new long[clients * requestsPerClient];
+        int count = 0;
+        int errors = 0;
+        for (Future<long[]> result : results) {
+            try {
+                for (long latency : result.get()) {
+                    if (latency < 0) {
+                        errors++;
+                    } else {
+                        latencies[count++] = latency;
+                    }
+                }
+            } catch (ExecutionException e) {
+                errors += requestsPerClient;
+                Logger.getLogger(DueDateLoadGenerator.class.getName()).warning(() -> "Load generator client failed: " + e.getCause());
+            }
+        }
+        return new LoadReport(Arrays.copyOf(latencies, count), errors, elapsedNanos);
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1) {
+            System.err.println("Usage: java DueDateLoadGenerator <server uri> [clients] [requests per client]");
+            System.exit(2);
+        }
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_CLIENTS;
+        int requestsPerClient = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_REQUESTS_PER_CLIENT;
+        System.out.println(new DueDateLoadGenerator(URI.create(args[0])).run(clients, requestsPerClient));
+    }
+
+    /**
+     * Outcome of a load run, latencies are of successful requests only
+     */
+    public static class LoadReport {
+
+        private final long[] sortedLatencies;
+        private final int errors;
+        private final long elapsedNanos;
+
+        LoadReport(long[] latencies, int errors, long elapsedNanos) {
+            this.sortedLatencies = latencies;
+            Arrays.sort(this.sortedLatencies);
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getRequests() {
+            return sortedLatencies.length + errors;
+        }
+
+        /**
+         * @return requests that failed or were answered with anything but 200
+         */
+        public int getErrors() {
+            return errors;
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return latency in nanoseconds that the given share of successful requests came in under, nearest rank
+         */
+        public long getLatencyPercentile(double percentile) {
+            if (sortedLatencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100 * sortedLatencies.length);
+            return sortedLatencies[Math.max(rank, 1) - 1];
+        }
+
+        public double getRequestsPerSecond() {
+            return elapsedNanos == 0 ? 0 : getRequests() * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d errors=%d p50=%.3fms p99=%.3fms throughput=%.0f req/s",
+                    getRequests(), errors, getLatencyPercentile(50) / 1e6, getLatencyPercentile(99) / 1e6, getRequestsPerSecond());
+        }
+    }
+}
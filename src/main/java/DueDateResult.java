@@ -0,0 +1,35 @@
+import calculation.DueDateStatus;
+
+import java.time.ZonedDateTime;
+
+public class DueDateResult {
+
+    static final DueDateResult INVALID_START = new DueDateResult(DueDateStatus.INVALID_START, null);
+    static final DueDateResult INVALID_LENGTH = new DueDateResult(DueDateStatus.INVALID_LENGTH, null);
+    static final DueDateResult INTERNAL_ERROR = new DueDateResult(DueDateStatus.INTERNAL_ERROR, null);
+
+    private final byte status;
+    private final ZonedDateTime dueDate;
+
+    /**
+     * Outcome of a due date calculation that reports failures instead of throwing
+     * @param status a {@link DueDateStatus} code
+     * @param dueDate the calculated due date, null unless the status is OK
+     */
+    DueDateResult(byte status, ZonedDateTime dueDate) {
+        this.status = status;
+        this.dueDate = dueDate;
+    }
+
+    public byte getStatus() {
+        return status;
+    }
+
+    public boolean isOk() {
+        return status == DueDateStatus.OK;
+    }
+
+    public ZonedDateTime getDueDate() {
+        return dueDate;
+    }
+}
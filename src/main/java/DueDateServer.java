@@ -0,0 +1,399 @@
+import calculation.DueDateStatus;
+import calculation.ZoneOffsetCache;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import formats.TaskFileFormat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Embeddable HTTP server exposing a {@link TaskHandler}, built on the JDK http server with one virtual thread per request.
+ * Tasks use the NDJSON layout of {@link TaskFileFormat#NDJSON}, {"startDate":"2024-09-02T16:34:23-04:00","taskDuration":20}.
+ * <ul>
+ *     <li>POST /duedate takes one task and answers with its due date. Single requests arriving within the coalescing
+ *     window are calculated together in one call to the batch API.</li>
+ *     <li>POST /duedates takes one task per line and answers with one result per line in the same order.</li>
+ * </ul>
+ * Both accept a zone query parameter for the time zone the working hours apply in, the server's default zone otherwise.
+ */
+public class DueDateServer {
+
+    private static final Duration DEFAULT_COALESCE_WINDOW = Duration.ofMillis(1);
+    private static final int MAX_BODY_BYTES = 64 << 20;
+    private static final String JSON = "application/json";
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final TaskHandler taskHandler;
+    private final Logger logger;
+    private final ZoneId defaultZone;
+    private final Coalescer coalescer;
+
+    private final LongAdder singleRequestCount = new LongAdder();
+    private final LongAdder batchRequestCount = new LongAdder();
+
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Server coalescing single requests that arrive within a millisecond
+     * @param taskHandler calculates the due dates
+     * @param logger used to log at runtime
+     * @param defaultZone time zone for requests without a zone parameter
+     */
+    public DueDateServer(TaskHandler taskHandler, Logger logger, ZoneId defaultZone) {
+        this(taskHandler, logger, defaultZone, DEFAULT_COALESCE_WINDOW);
+    }
+
+    /**
+     * Server
+     * @param taskHandler calculates the due dates
+     * @param logger used to log at runtime
+     * @param defaultZone time zone for requests without a zone parameter
+     * @param coalesceWindow how long the first single request waits for others to calculate with, zero to wait for none
+     */
+    public DueDateServer(TaskHandler taskHandler, Logger logger, ZoneId defaultZone, Duration coalesceWindow) {
+        this.taskHandler = taskHandler;
+        this.logger = logger;
+        this.defaultZone = defaultZone;
+        this.coalescer = new Coalescer(taskHandler, coalesceWindow);
+    }
+
+    /**
+     * Starts listening, requests are handled on virtual threads until {@link #stop()} is called
+     * @param address where to listen, port 0 picks a free port
+     */
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Due date server is already running");
+        }
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/duedate", this::handleSingle);
+        server.createContext("/duedates", this::handleBatch);
+        server.start();
+        logger.log(Level.INFO, () -> String.format("Due date server listening on %s", server.getAddress()));
+    }
+
+    /**
+     * Stops listening and waits for requests in progress to finish
+     */
+    public synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            executor.close();
+            server = null;
+            executor = null;
+        }
+    }
+
+    public synchronized int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("Due date server is not running");
+        }
+        return server.getAddress().getPort();
+    }
+
+    public long getSingleRequestCount() {
+        return singleRequestCount.sum();
+    }
+
+    public long getBatchRequestCount() {
+        return batchRequestCount.sum();
+    }
+
+    /**
+     * @return number of batch API calls made for coalesced single requests, lower than the single request count when coalescing works
+     */
+    public long getCoalescedCalculationCount() {
+        return coalescer.calculationCount.sum();
+    }
+
+    /**
+     * Runs a standalone server until the process is killed
+     * java DueDateServer [port] [default zone]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        ZoneId zone = args.length > 1 ? ZoneId.of(args[1]) : ZoneId.systemDefault();
+        Logger logger = Logger.getLogger(DueDateServer.class.getName());
+        new DueDateServer(new TaskHandler(logger), logger, zone).start(new InetSocketAddress(port));
+    }
+
+    private void handleSingle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, JSON, new byte[0], 0);
+                return;
+            }
+            singleRequestCount.increment();
+            ZoneId zone = zone(exchange);
+            byte[] body = readBody(exchange);
+            if (zone == null || body == null) {
+                respondWithStatus(exchange, 400, TaskFileFormat.INVALID_INPUT, 0, defaultZone);
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            long[] startEpochSeconds = new long[1];
+            int[] taskDurations = new int[1];
+            if (!TaskFileFormat.NDJSON.parseRow(buffer, 0, trimmedLength(body), ZoneOffsetCache.forZone(zone), startEpochSeconds, taskDurations, 0)) {
+                respondWithStatus(exchange, 400, TaskFileFormat.INVALID_INPUT, 0, zone);
+                return;
+            }
+
+            Pending pending = coalescer.submit(startEpochSeconds[0], taskDurations[0], zone);
+            try {
+                pending.result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for due date", e);
+            } catch (ExecutionException e) {
+                logger.log(Level.SEVERE, "Error in coalesced due date calculation", e.getCause());
+                respondWithStatus(exchange, 500, DueDateStatus.INTERNAL_ERROR, 0, zone);
+                return;
+            }
+            int code = switch (pending.status) {
+                case DueDateStatus.OK -> 200;
+                case DueDateStatus.INVALID_START, DueDateStatus.INVALID_LENGTH -> 422;
+                default -> 500;
+            };
+            respondWithStatus(exchange, code, pending.status, pending.dueDate, zone);
+        }
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405, NDJSON, new byte[0], 0);
+                return;
+            }
+            batchRequestCount.increment();
+            ZoneId zone = zone(exchange);
+            byte[] body = readBody(exchange);
+            if (zone == null || body == null) {
+                respondWithStatus(exchange, 400, TaskFileFormat.INVALID_INPUT, 0, defaultZone);
+                return;
+            }
+
+            ZoneOffsetCache offsets = ZoneOffsetCache.forZone(zone);
+            ByteBuffer buffer = ByteBuffer.wrap(body);
+            int lineCount = 0;
+            for (byte b : body) {
+                if (b == '\n') {
+                    lineCount++;
+                }
+            }
+            lineCount++;
+            long[] startEpochSeconds = new long[lineCount];
+            int[] taskDurations = new int[lineCount];
+            boolean[] parsed = new boolean[lineCount];
+            int lines = 0;
+            int rows = 0;
+            for (int lineStart = 0; lineStart < body.length; ) {
+                int lineEnd = lineStart;
+                while (lineEnd < body.length && body[lineEnd] != '\n') {
+                    lineEnd++;
+                }
+                if (!isBlank(body, lineStart, lineEnd)) {
+                    parsed[lines] = TaskFileFormat.NDJSON.parseRow(buffer, lineStart, lineEnd, offsets, startEpochSeconds, taskDurations, rows);
+                    if (parsed[lines++]) {
+                        rows++;
+                    }
+                }
+                lineStart = lineEnd + 1;
+            }
+
+            long[] dueDates = new long[rows];
+            byte[] statuses = new byte[rows];
+            taskHandler.calculateDueDates(startEpochSeconds, taskDurations, rows, zone, dueDates, statuses);
+
+            byte[] out = new byte[lines * TaskFileFormat.MAX_ROW_LENGTH];
+            int position = 0;
+            int row = 0;
+            for (int line = 0; line < lines; line++) {
+                if (parsed[line]) {
+                    position = TaskFileFormat.NDJSON.writeRow(out, position, dueDates[row], statuses[row], offsets);
+                    row++;
+                } else {
+                    position = TaskFileFormat.NDJSON.writeRow(out, position, 0, TaskFileFormat.INVALID_INPUT, offsets);
+                }
+            }
+            respond(exchange, 200, NDJSON, out, position);
+        }
+    }
+
+    // Returns null if the zone parameter is not a valid zone
+    private ZoneId zone(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return defaultZone;
+        }
+        for (String parameter : query.split("&")) {
+            if (parameter.startsWith("zone=")) {
+                try {
+                    return ZoneId.of(URLDecoder.decode(parameter.substring(5), StandardCharsets.UTF_8));
+                } catch (DateTimeException | IllegalArgumentException e) {
+                    return null;
+                }
+            }
+        }
+        return defaultZone;
+    }
+
+    // Returns null if the body is larger than the server accepts
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            return body.length > MAX_BODY_BYTES ? null : body;
+        }
+    }
+
+    private static void respondWithStatus(HttpExchange exchange, int code, byte status, long dueDate, ZoneId zone) throws IOException {
+        byte[] out = new byte[TaskFileFormat.MAX_ROW_LENGTH];
+        int length = TaskFileFormat.NDJSON.writeRow(out, 0, dueDate, status, ZoneOffsetCache.forZone(zone));
+        respond(exchange, code, JSON, out, length);
+    }
+
+    private static void respond(HttpExchange exchange, int code, String contentType, byte[] body, int length) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(code, length == 0 ? -1 : length);
+        if (length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body, 0, length);
+            }
+        }
+    }
+
+    private static int trimmedLength(byte[] body) {
+        int length = body.length;
+        while (length > 0 && (body[length - 1] == '\n' || body[length - 1] == '\r' || body[length - 1] == ' ')) {
+            length--;
+        }
+        return length;
+    }
+
+    private static boolean isBlank(byte[] body, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (body[i] != ' ' && body[i] != '\t' && body[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // A single request waiting for its turn in a coalesced calculation
+    private static class Pending {
+        final long startEpochSecond;
+        final int taskDuration;
+        final ZoneId zone;
+        final CompletableFuture<Void> result = new CompletableFuture<>();
+        long dueDate; // written before the result completes
+        byte status;
+
+        Pending(long startEpochSecond, int taskDuration, ZoneId zone) {
+            this.startEpochSecond = startEpochSecond;
+            this.taskDuration = taskDuration;
+            this.zone = zone;
+        }
+    }
+
+    /**
+     * Gathers single requests into batches. The request that finds no calculation scheduled becomes the leader:
+     * it sleeps for the window on its virtual thread, then calculates everything queued meanwhile, its own task included.
+     * Requests arriving after the leader has taken the queue elect the next leader.
+     */
+    private static class Coalescer {
+
+        private final TaskHandler taskHandler;
+        private final long windowNanos;
+        private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final LongAdder calculationCount = new LongAdder();
+
+        Coalescer(TaskHandler taskHandler, Duration window) {
+            this.taskHandler = taskHandler;
+            this.windowNanos = window.toNanos();
+        }
+
+        Pending submit(long startEpochSecond, int taskDuration, ZoneId zone) {
+            Pending pending = new Pending(startEpochSecond, taskDuration, zone);
+            queue.add(pending);
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    if (windowNanos > 0) {
+                        Thread.sleep(Duration.ofNanos(windowNanos));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    scheduled.set(false);
+                    calculateQueued();
+                }
+            }
+            return pending;
+        }
+
+        private void calculateQueued() {
+            List<Pending> batch = new ArrayList<>();
+            for (Pending pending = queue.poll(); pending != null; pending = queue.poll()) {
+                batch.add(pending);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            Map<ZoneId, List<Pending>> byZone = new HashMap<>();
+            for (Pending pending : batch) {
+                byZone.computeIfAbsent(pending.zone, zone -> new ArrayList<>()).add(pending);
+            }
+            for (Map.Entry<ZoneId, List<Pending>> zoneBatch : byZone.entrySet()) {
+                List<Pending> pendings = zoneBatch.getValue();
+                try {
+                    int size = pendings.size();
+                    long[] startEpochSeconds = new long[size];
+                    int[] taskDurations = new int[size];
+                    for (int i = 0; i < size; i++) {
+                        startEpochSeconds[i] = pendings.get(i).startEpochSecond;
+                        taskDurations[i] = pendings.get(i).taskDuration;
+                    }
+                    long[] dueDates = new long[size];
+                    byte[] statuses = new byte[size];
+                    taskHandler.calculateDueDates(startEpochSeconds, taskDurations, zoneBatch.getKey(), dueDates, statuses);
+                    calculationCount.increment();
+                    for (int i = 0; i < size; i++) {
+                        Pending pending = pendings.get(i);
+                        pending.dueDate = dueDates[i];
+                        pending.status = statuses[i];
+                        pending.result.complete(null);
+                    }
+                } catch (RuntimeException e) {
+                    for (Pending pending : pendings) {
+                        pending.result.completeExceptionally(e);
+                    }
+                }
+            }
+        }
+    }
+}
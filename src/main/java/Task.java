@@ -1,8 +1,11 @@
 import java.time.ZonedDateTime;
 
-public class Task {
-    private ZonedDateTime startDate;
-    private int taskDuration;
+/**
+ * A task to schedule, immutable so it can be handed between threads freely.
+ */
+public final class Task {
+    private final ZonedDateTime startDate;
+    private final int taskDuration;
 
     public ZonedDateTime getStartDate() {
         return startDate;
@@ -0,0 +1,326 @@
+import calculation.ZoneOffsetCache;
+import formats.TaskFileFormat;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Calculates the due dates of every task in a CSV or NDJSON file and writes one result row per task.
+ * The input is memory mapped and cut into fixed size chunks on line boundaries. Worker threads parse
+ * each chunk straight from the mapped bytes, run it through the batch API and format the results,
+ * while the calling thread maps ahead and writes finished chunks out in input order.
+ * Only a fixed number of chunks are in flight at once, so memory use does not grow with the file.
+ */
+public class TaskFileProcessor {
+
+    private static final int CHUNK_BYTES = 1 << 20;
+    private static final long WINDOW_BYTES = 1L << 30; // mapped at a time, a single mapping can not exceed 2GB
+    private static final int CHUNKS_PER_WORKER = 2; // one being worked on, one queued
+
+    private final TaskHandler taskHandler;
+    private final Logger logger;
+    private final int workers;
+    private final int chunkBytes;
+    private final long windowBytes;
+
+    /**
+     * File processor using one worker per available processor
+     * @param taskHandler calculates the due dates
+     * @param logger used to report throughput
+     */
+    public TaskFileProcessor(TaskHandler taskHandler, Logger logger) {
+        this(taskHandler, logger, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * File processor
+     * @param taskHandler calculates the due dates
+     * @param logger used to report throughput
+     * @param workers number of threads parsing and calculating chunks
+     */
+    public TaskFileProcessor(TaskHandler taskHandler, Logger logger, int workers) {
+        this(taskHandler, logger, workers, CHUNK_BYTES, WINDOW_BYTES);
+    }
+
+    // Smaller chunks and windows let tests cross every boundary with small files
+    TaskFileProcessor(TaskHandler taskHandler, Logger logger, int workers, int chunkBytes, long windowBytes) {
+        if (workers < 1) {
+            throw new IllegalArgumentException(String.format("Invalid worker count: %d. Value must be greater than zero.", workers));
+        }
+        this.taskHandler = taskHandler;
+        this.logger = logger;
+        this.workers = workers;
+        this.chunkBytes = chunkBytes;
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * Processes a whole file. Rows that can not be parsed or fail validation are written with their status
+     * instead of a due date, so the output has one row per input row in the same order.
+     * @param input file of tasks
+     * @param output file to write results to, replaced if it exists
+     * @param format layout of both files
+     * @param zone time zone the working hours apply in, also used for start dates without an offset
+     * @return row counts and throughput
+     * @throws IOException if either file can not be read or written, or a line is longer than a mapping window
+     */
+    public Summary process(Path input, Path output, TaskFileFormat format, ZoneId zone) throws IOException {
+        long startNanos = System.nanoTime();
+        ZoneOffsetCache offsets = ZoneOffsetCache.forZone(zone);
+        ExecutorService executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "task-file-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ArrayDeque<Chunk> freeChunks = new ArrayDeque<>();
+        ArrayDeque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        long rows = 0;
+        long rejected = 0;
+
+        try (FileChannel in = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            boolean firstLine = true;
+            while (position < size) {
+                long windowSize = Math.min(windowBytes, size - position);
+                boolean lastWindow = position + windowSize == size;
+                MappedByteBuffer window = in.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                int limit = (int) windowSize;
+
+                int offset = 0;
+                if (firstLine) {
+                    firstLine = false;
+                    int lineEnd = indexOf(window, '\n', 0, limit);
+                    int end = lineEnd < 0 ? limit : lineEnd;
+                    if (format.isHeader(window, 0, end)) {
+                        byte[] header = new byte[TaskFileFormat.MAX_ROW_LENGTH];
+                        out.write(ByteBuffer.wrap(header, 0, format.writeHeader(header, 0)));
+                        offset = lineEnd < 0 ? limit : lineEnd + 1;
+                    }
+                }
+
+                while (offset < limit) {
+                    int end = chunkEnd(window, offset, limit, lastWindow);
+                    if (end < 0) {
+                        break; // the rest of the window is a partial line, map again from its start
+                    }
+                    if (inFlight.size() == workers * CHUNKS_PER_WORKER) {
+                        Chunk done = await(inFlight.poll());
+                        rows += done.rows;
+                        rejected += done.rejected;
+                        out.write(ByteBuffer.wrap(done.out, 0, done.outLength));
+                        freeChunks.push(done);
+                    }
+                    Chunk chunk = freeChunks.isEmpty() ? new Chunk() : freeChunks.pop();
+                    chunk.input = window.slice(offset, end - offset);
+                    inFlight.add(executor.submit(() -> calculate(chunk, format, offsets, zone)));
+                    offset = end;
+                }
+                if (offset == 0 && !lastWindow) {
+                    throw new IOException(String.format("Line at byte %d of %s is longer than %d bytes", position, input, windowBytes));
+                }
+                position += offset;
+            }
+
+            while (!inFlight.isEmpty()) {
+                Chunk done = await(inFlight.poll());
+                rows += done.rows;
+                rejected += done.rejected;
+                out.write(ByteBuffer.wrap(done.out, 0, done.outLength));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Summary summary = new Summary(rows, rejected, System.nanoTime() - startNanos);
+        logger.log(Level.INFO, () -> String.format("Processed %d tasks from %s in %d ms, %d rows/s, %d rejected",
+                summary.getRows(), input, summary.getElapsedNanos() / 1_000_000, (long) summary.getRowsPerSecond(), summary.getRejected()));
+        return summary;
+    }
+
+    // Parses, calculates and formats one chunk on a worker thread
+    private Chunk calculate(Chunk chunk, TaskFileFormat format, ZoneOffsetCache offsets, ZoneId zone) {
+        ByteBuffer input = chunk.input;
+        int limit = input.limit();
+        int lines = 0;
+        int rows = 0;
+        for (int lineStart = 0; lineStart < limit; ) {
+            int lineEnd = indexOf(input, '\n', lineStart, limit);
+            int next = lineEnd < 0 ? limit : lineEnd + 1;
+            int end = lineEnd < 0 ? limit : lineEnd;
+            if (!isBlank(input, lineStart, end)) {
+                chunk.ensureCapacity(lines + 1);
+                boolean parsed = format.parseRow(input, lineStart, end, offsets, chunk.startEpochSeconds, chunk.taskDurations, rows);
+                chunk.parsed[lines++] = parsed;
+                if (parsed) {
+                    rows++;
+                }
+            }
+            lineStart = next;
+        }
+
+        int rejected = lines - rows;
+        if (rows > 0) {
+            rejected += taskHandler.calculateDueDates(chunk.startEpochSeconds, chunk.taskDurations, rows, zone, chunk.dueDates, chunk.statuses);
+        }
+
+        chunk.ensureOutCapacity(lines * TaskFileFormat.MAX_ROW_LENGTH);
+        int position = 0;
+        int row = 0;
+        for (int line = 0; line < lines; line++) {
+            if (chunk.parsed[line]) {
+                position = format.writeRow(chunk.out, position, chunk.dueDates[row], chunk.statuses[row], offsets);
+                row++;
+            } else {
+                position = format.writeRow(chunk.out, position, 0, TaskFileFormat.INVALID_INPUT, offsets);
+            }
+        }
+        chunk.input = null;
+        chunk.rows = lines;
+        chunk.rejected = rejected;
+        chunk.outLength = position;
+        return chunk;
+    }
+
+    // End of the chunk starting at offset, just after a line feed, or -1 if no whole line is left in the window
+    private int chunkEnd(ByteBuffer window, int offset, int limit, boolean lastWindow) {
+        int target = offset + chunkBytes;
+        if (target >= limit) {
+            if (lastWindow) {
+                return limit;
+            }
+            int lineEnd = lastIndexOf(window, '\n', offset, limit);
+            return lineEnd < 0 ? -1 : lineEnd + 1;
+        }
+        int lineEnd = lastIndexOf(window, '\n', offset, target);
+        if (lineEnd < 0) {
+            // A single line longer than a chunk, take it whole
+            lineEnd = indexOf(window, '\n', target, limit);
+            if (lineEnd < 0) {
+                return lastWindow ? limit : -1;
+            }
+        }
+        return lineEnd + 1;
+    }
+
+    private static Chunk await(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while processing task file");
+        } catch (ExecutionException e) {
+            throw new IOException("Error in due date calculation", e.getCause());
+        }
+    }
+
+    private static int indexOf(ByteBuffer buffer, char value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(ByteBuffer buffer, char value, int from, int to) {
+        for (int i = to - 1; i >= from; i--) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isBlank(ByteBuffer buffer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Reusable buffers for one chunk, owned by one thread at a time
+    private static class Chunk {
+        ByteBuffer input;
+        boolean[] parsed = new boolean[0];
+        long[] startEpochSeconds = new long[0];
+        int[] taskDurations = new int[0];
+        long[] dueDates = new long[0];
+        byte[] statuses = new byte[0];
+        byte[] out = new byte[0];
+        int rows;
+        int rejected;
+        int outLength;
+
+        void ensureCapacity(int lines) {
+            if (parsed.length < lines) {
+                int capacity = Math.max(lines, parsed.length * 2);
+                parsed = Arrays.copyOf(parsed, capacity);
+                startEpochSeconds = Arrays.copyOf(startEpochSeconds, capacity);
+                taskDurations = Arrays.copyOf(taskDurations, capacity);
+                dueDates = new long[capacity];
+                statuses = new byte[capacity];
+            }
+        }
+
+        void ensureOutCapacity(int bytes) {
+            if (out.length < bytes) {
+                out = new byte[Math.max(bytes, out.length * 2)];
+            }
+        }
+    }
+
+    /**
+     * Counts and timing of a processed file
+     */
+    public static class Summary {
+
+        private final long rows;
+        private final long rejected;
+        private final long elapsedNanos;
+
+        Summary(long rows, long rejected, long elapsedNanos) {
+            this.rows = rows;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return rows that could not be parsed or failed validation
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+        }
+    }
+}
@@ -1,24 +1,51 @@
+import cache.DueDateCache;
+import calculation.DueDateCalculator;
+import calculation.DueDateStatus;
+import calculation.WorkingTimeIndex;
+import calculation.ZoneOffsetCache;
 import exceptions.InvalidTaskDateException;
 import exceptions.TaskHandlerException;
+import holidays.HolidayCalendar;
+import index.DueDateIndex;
+import metrics.TaskHandlerMetrics;
+import schedule.WorkSchedule;
 
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.ZonedDateTime;
-import java.util.Calendar;
-import java.util.GregorianCalendar;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class TaskHandler {
+/**
+ * Calculates task due dates against a schedule of working hours.
+ * Instances are immutable after construction and safe to share between any number of threads:
+ * every field is final, the working time tables are built once and published safely, and the only
+ * state that changes, the count of rejected tasks used to sample logging, is an atomic counter.
+ * Loggers, metrics, caches and indexes passed in must be thread safe themselves, as the ones in this project are.
+ */
+public final class TaskHandler {
 
-    private static final int NON_WORK_HOURS = 16; // 24 hours - 8 work hours = 16 non work hours
-    private static final int WORKDAY_END_HOUR = 17; // 17 = 17:00 - 5:00PM
-    private static final int WORKDAY_START_HOUR = 9; // 9 = 09:00 - 9:00AM
-    Logger logger;
+    // Handlers on the standard schedule without holidays share their working time tables
+    private static final WorkingTimeIndex DEFAULT_WORKING_TIME_INDEX = new WorkingTimeIndex();
+    private static final int REJECTED_LOG_SAMPLE_RATE = 1000; // tryCalculateDueDate logs one in every 1000 rejected tasks
+    private static final int PARALLEL_THRESHOLD = 8192; // batches up to this many rows are calculated on one thread
+
+    private final Logger logger;
+    private final WorkingTimeIndex workingTimeIndex;
+    private final TaskHandlerMetrics metrics; // null when metrics are disabled
+    private final DueDateCache cache; // null when caching is disabled
+    private final DueDateIndex index; // null when indexing is disabled
+    private final AtomicLong rejectedCount = new AtomicLong();
 
     /**
      * Handler for all task related operations
      */
     public TaskHandler() {
-        this.logger = Logger.getLogger(TaskHandler.class.getName());
+        this(Logger.getLogger(TaskHandler.class.getName()));
     }
 
     /**
@@ -26,103 +53,571 @@ public class TaskHandler {
      * @param logger used to log at runtime
      */
     public TaskHandler(Logger logger) {
+        this(logger, WorkSchedule.STANDARD, HolidayCalendar.EMPTY, null, null, null);
+    }
+
+    /**
+     * Handler for all task related operations
+     * @param logger used to log at runtime
+     * @param schedule working hours for each day of the week
+     * @param holidays non working days skipped in addition to days off in the schedule
+     * @param metrics receives outcome counts and latencies, null to disable metrics
+     * @param cache remembers due dates of repeated tasks, may be shared with other handlers, null to disable caching
+     * @param index receives the due dates of tasks calculated with an id, may be shared with other handlers, null to disable indexing
+     */
+    public TaskHandler(Logger logger, WorkSchedule schedule, HolidayCalendar holidays, TaskHandlerMetrics metrics, DueDateCache cache,
+                       DueDateIndex index) {
         this.logger = logger;
+        this.workingTimeIndex = schedule.equals(WorkSchedule.STANDARD) && holidays.isEmpty()
+                ? DEFAULT_WORKING_TIME_INDEX
+                : new WorkingTimeIndex(schedule, holidays);
+        this.metrics = metrics;
+        this.cache = cache;
+        this.index = index;
+    }
+
+    public static Builder builder() {
+        return new Builder();
     }
 
     /**
      * Calulates the due date of a task.
-     * Only accounts for working hours (9am - 5pm) Mon-Fri, ignores weekends and holidays
+     * Only accounts for the working hours of the schedule (9am - 5pm Mon-Fri by default), ignores days off and holidays
      * @param task the task you wish to operate on
      * @return the calculated due date of the task
      */
     public ZonedDateTime calculateDueDate(Task task) throws InvalidTaskDateException, TaskHandlerException {
-        // Validate start date
-        ZonedDateTime startDate = task.getStartDate();
-        Calendar calendarDate = formatDate(startDate);
+        ZoneId zone = task.getStartDate().getZone();
+        long dueDate = calculateDueDate(task.getStartDate().toEpochSecond(), task.getTaskDuration(), zone);
+        return Instant.ofEpochSecond(dueDate).atZone(zone);
+    }
+
+    /**
+     * Calculates the due date of a task without allocating, for callers working with raw timestamps.
+     * Only accounts for the working hours of the schedule (9am - 5pm Mon-Fri by default), ignores days off and holidays
+     * @param startEpochSecond start date of the task in seconds since the epoch
+     * @param taskDuration length of the task in working hours
+     * @param zone time zone the working hours apply in
+     * @return the calculated due date of the task in seconds since the epoch
+     */
+    public long calculateDueDate(long startEpochSecond, int taskDuration, ZoneId zone) throws InvalidTaskDateException, TaskHandlerException {
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+        // Only valid tasks are cached, a hit needs no validation
+        if (cache != null) {
+            long cached = cache.get(startEpochSecond, taskDuration, zone, workingTimeIndex.getSchedule(), workingTimeIndex.getHolidays());
+            if (cached != DueDateCache.MISSING) {
+                if (metrics != null) {
+                    metrics.recordSuccess(taskDuration, System.nanoTime() - startNanos);
+                }
+                return cached;
+            }
+        }
+        ZoneOffsetCache offsets = ZoneOffsetCache.forZone(zone);
+        long localStart = offsets.toLocalEpochSecond(startEpochSecond);
+
+        byte status = validate(workingTimeIndex, localStart, taskDuration);
+        if (status != DueDateStatus.OK && metrics != null) {
+            recordRejected(status);
+        }
+        if (status == DueDateStatus.INVALID_START) {
+            ZonedDateTime startDate = Instant.ofEpochSecond(startEpochSecond).atZone(zone);
+            logger.log(Level.SEVERE, () -> String.format("Invalid start date provided: %s", startDate));
+            throw new InvalidTaskDateException(String.format("The provided date was invalid: %s. Please ensure date is withing working hours %s.",
+                    startDate, workingTimeIndex.getSchedule()));
+        }
+        if (status == DueDateStatus.INVALID_LENGTH) {
+            logger.log(Level.SEVERE, () -> String.format("Invalid task length provided: %d", taskDuration));
+            throw new TaskHandlerException(String.format("Invalid task length: %d. Value must be greater than zero.", taskDuration));
+        }
 
-        if (!validateDateForWorkingHours(calendarDate)) {
-            logger.log(Level.SEVERE, String.format("Invalid start date provided: %s", startDate));
-            throw new InvalidTaskDateException(String.format("The provided date was invalid: %s. Please ensure date is withing working hours 9am-5pm Mon-Fri.", startDate));
+        long dueDate = addWorkingHours(offsets, localStart, taskDuration);
+        if (cache != null) {
+            cache.put(startEpochSecond, taskDuration, zone, workingTimeIndex.getSchedule(), workingTimeIndex.getHolidays(), dueDate);
         }
+        if (metrics != null) {
+            metrics.recordSuccess(taskDuration, System.nanoTime() - startNanos);
+        }
+        return dueDate;
+    }
+
+    /**
+     * Calculates the due date of a task and indexes it under the task's id.
+     * Calculating the same task again moves its entry rather than adding another, so the index counts each task once.
+     * Nothing is indexed if the task is rejected or the handler has no index, a rejected task keeps any entry it already had.
+     * @param taskId identifies the task in the index, chosen by the caller
+     * @param task the task you wish to operate on
+     * @return the calculated due date of the task
+     */
+    public ZonedDateTime calculateAndIndexDueDate(long taskId, Task task) throws InvalidTaskDateException, TaskHandlerException {
+        ZoneId zone = task.getStartDate().getZone();
+        long dueDate = calculateAndIndexDueDate(taskId, task.getStartDate().toEpochSecond(), task.getTaskDuration(), zone);
+        return Instant.ofEpochSecond(dueDate).atZone(zone);
+    }
 
-        // Validate task length
-        int taskLength = task.getTaskDuration();
-        if (taskLength <= 0) {
-            logger.log(Level.SEVERE, String.format("Invalid task length provided: %d", taskLength));
-            throw new TaskHandlerException(String.format("Invalid task length: %d. Value must be greater than zero.", taskLength));
+    /**
+     * Calculates the due date of a task from raw timestamps and indexes it under the task's id,
+     * see {@link #calculateAndIndexDueDate(long, Task)}.
+     * @param taskId identifies the task in the index, chosen by the caller
+     * @return the calculated due date of the task in seconds since the epoch
+     */
+    public long calculateAndIndexDueDate(long taskId, long startEpochSecond, int taskDuration, ZoneId zone) throws InvalidTaskDateException, TaskHandlerException {
+        long dueDate = calculateDueDate(startEpochSecond, taskDuration, zone);
+        if (index != null) {
+            index.put(taskId, zone, dueDate);
         }
+        return dueDate;
+    }
 
-        return incrementTaskDueDate(calendarDate, taskLength).toInstant().atZone(startDate.getZone());
+    /**
+     * Calculates the due dates of a chain of tasks worked one after the other, each starting when the previous one is due.
+     * @param startDate start date of the first task
+     * @param taskDurations lengths of the tasks in working hours, in the order they are worked
+     * @return the due date of each task
+     */
+    public ZonedDateTime[] calculateDueDateChain(ZonedDateTime startDate, int[] taskDurations) throws InvalidTaskDateException, TaskHandlerException {
+        ZoneId zone = startDate.getZone();
+        long[] dueDates = calculateDueDateChain(startDate.toEpochSecond(), taskDurations, zone);
+        ZonedDateTime[] chain = new ZonedDateTime[dueDates.length];
+        for (int i = 0; i < dueDates.length; i++) {
+            chain[i] = Instant.ofEpochSecond(dueDates[i]).atZone(zone);
+        }
+        return chain;
     }
 
-    // Recursive method used for calculating the task due date.
-    private Calendar incrementTaskDueDate(Calendar dueDate, int hoursRemain) throws TaskHandlerException {
-        // Sanity check
-        if (hoursRemain < 0) {
-            logger.log(Level.SEVERE, "Date has been miscalculated, please investigate!");
+    /**
+     * Calculates the due dates of a chain of tasks worked one after the other, each starting when the previous one is due.
+     * Only the first start date is validated and converted, the wall clock time is carried forward from task to task,
+     * so a long chain costs about the same as one task of the combined length.
+     * @param startEpochSecond start date of the first task in seconds since the epoch
+     * @param taskDurations lengths of the tasks in working hours, in the order they are worked
+     * @param zone time zone the working hours apply in
+     * @return the due date of each task in seconds since the epoch
+     */
+    public long[] calculateDueDateChain(long startEpochSecond, int[] taskDurations, ZoneId zone) throws InvalidTaskDateException, TaskHandlerException {
+        ZoneOffsetCache offsets = ZoneOffsetCache.forZone(zone);
+        long localStart = offsets.toLocalEpochSecond(startEpochSecond);
+        if (!workingTimeIndex.isWorkingTime(localStart)) {
+            if (metrics != null) {
+                metrics.recordInvalidDates(1);
+            }
+            ZonedDateTime startDate = Instant.ofEpochSecond(startEpochSecond).atZone(zone);
+            logger.log(Level.SEVERE, () -> String.format("Invalid start date provided: %s", startDate));
+            throw new InvalidTaskDateException(String.format("The provided date was invalid: %s. Please ensure date is withing working hours %s.",
+                    startDate, workingTimeIndex.getSchedule()));
+        }
+        // The whole chain is rejected up front rather than returning part of it
+        for (int i = 0; i < taskDurations.length; i++) {
+            int taskDuration = taskDurations[i];
+            if (taskDuration <= 0) {
+                if (metrics != null) {
+                    metrics.recordInvalidLengths(1);
+                }
+                int position = i;
+                logger.log(Level.SEVERE, () -> String.format("Invalid task length provided: %d at position %d in chain", taskDuration, position));
+                throw new TaskHandlerException(String.format("Invalid task length: %d at position %d in chain. Value must be greater than zero.",
+                        taskDuration, position));
+            }
+        }
+
+        long[] dueDates = new long[taskDurations.length];
+        long local = localStart;
+        try {
+            for (int i = 0; i < taskDurations.length; i++) {
+                local = workingTimeIndex.addWorkingSeconds(local, toSeconds(taskDurations[i]));
+                dueDates[i] = offsets.toEpochSecond(local);
+            }
+        } catch (DateTimeException | ArithmeticException e) {
+            if (metrics != null) {
+                metrics.recordInternalErrors(1);
+            }
+            logger.log(Level.SEVERE, "Date has been miscalculated, please investigate!", e);
             throw new TaskHandlerException("Error in due date calculation");
         }
+        if (metrics != null) {
+            metrics.recordSuccesses(taskDurations.length);
+        }
+        return dueDates;
+    }
+
+    /**
+     * Calculates the due date of a task, reporting invalid input through the result instead of throwing.
+     * Meant for feeds where rejected tasks are routine, only a sample of the rejections is logged.
+     * @param task the task you wish to operate on
+     * @return the calculated due date, or the reason the task was rejected
+     */
+    public DueDateResult tryCalculateDueDate(Task task) {
+        long startNanos = metrics != null ? System.nanoTime() : 0;
+        ZonedDateTime startDate = task.getStartDate();
+        int taskDuration = task.getTaskDuration();
+        ZoneOffsetCache offsets = ZoneOffsetCache.forZone(startDate.getZone());
+        long localStart = offsets.toLocalEpochSecond(startDate.toEpochSecond());
+
+        byte status = validate(workingTimeIndex, localStart, taskDuration);
+        if (status != DueDateStatus.OK) {
+            if (metrics != null) {
+                recordRejected(status);
+            }
+            long rejected = rejectedCount.incrementAndGet();
+            if (rejected % REJECTED_LOG_SAMPLE_RATE == 1) {
+                logger.log(Level.SEVERE, () -> status == DueDateStatus.INVALID_START
+                        ? String.format("Invalid start date provided: %s (%d tasks rejected so far)", startDate, rejected)
+                        : String.format("Invalid task length provided: %d (%d tasks rejected so far)", taskDuration, rejected));
+            }
+            return status == DueDateStatus.INVALID_START ? DueDateResult.INVALID_START : DueDateResult.INVALID_LENGTH;
+        }
+
+        long dueDate;
+        try {
+            dueDate = addWorkingHours(offsets, localStart, taskDuration);
+        } catch (TaskHandlerException e) {
+            return DueDateResult.INTERNAL_ERROR;
+        }
+        if (metrics != null) {
+            metrics.recordSuccess(taskDuration, System.nanoTime() - startNanos);
+        }
+        return new DueDateResult(DueDateStatus.OK, Instant.ofEpochSecond(dueDate).atZone(startDate.getZone()));
+    }
+
+    /**
+     * Counts the working hours between two dates, for example the time a task has been open.
+     * Only accounts for the working hours of the schedule (9am - 5pm Mon-Fri by default), ignores days off and holidays
+     * @param startDate the date to count from
+     * @param endDate the date to count to, converted to the time zone of the start date
+     * @return working hours between the two dates, negative if the end date is before the start date
+     */
+    public double workingHoursBetween(ZonedDateTime startDate, ZonedDateTime endDate) {
+        long seconds = workingSecondsBetween(startDate.toEpochSecond(), endDate.toEpochSecond(), startDate.getZone());
+        return (double) seconds / DueDateCalculator.SECONDS_PER_HOUR;
+    }
+
+    /**
+     * Counts the working seconds between two dates given as epoch seconds.
+     * @param startEpochSecond the date to count from in seconds since the epoch
+     * @param endEpochSecond the date to count to in seconds since the epoch
+     * @param zone time zone the working hours apply in
+     * @return working seconds between the two dates, negative if the end date is before the start date
+     */
+    public long workingSecondsBetween(long startEpochSecond, long endEpochSecond, ZoneId zone) {
+        ZoneOffsetCache offsets = ZoneOffsetCache.forZone(zone);
+        long localStart = offsets.toLocalEpochSecond(startEpochSecond);
+        long localEnd = offsets.toLocalEpochSecond(endEpochSecond);
+        return workingTimeIndex.workingSecondsBetween(localStart, localEnd);
+    }
+
+    /**
+     * Calculates the due dates of many tasks at once from columnar input.
+     * Rows that fail validation are flagged in the status array rather than thrown, their due date is left untouched.
+     * Large batches are split across the common fork join pool, small ones run on the calling thread.
+     * @param startEpochSeconds start dates of the tasks in seconds since the epoch
+     * @param taskDurations lengths of the tasks in working hours
+     * @param zone time zone the working hours apply in
+     * @param dueDates receives the calculated due dates in seconds since the epoch
+     * @param statuses receives a {@link DueDateStatus} code for every row
+     * @return the number of rows that failed validation
+     */
+    public int calculateDueDates(long[] startEpochSeconds, int[] taskDurations, ZoneId zone, long[] dueDates, byte[] statuses) {
+        if (taskDurations.length != startEpochSeconds.length) {
+            throw new IllegalArgumentException(String.format("Batch arrays do not line up: %d starts, %d durations",
+                    startEpochSeconds.length, taskDurations.length));
+        }
+        return calculateDueDates(startEpochSeconds, taskDurations, startEpochSeconds.length, zone, dueDates, statuses);
+    }
+
+    /**
+     * Calculates the due dates of the first rows of reusable batch arrays, see {@link #calculateDueDates(long[], int[], ZoneId, long[], byte[])}.
+     * @param length number of rows to calculate, counted from the start of the arrays
+     */
+    public int calculateDueDates(long[] startEpochSeconds, int[] taskDurations, int length, ZoneId zone, long[] dueDates, byte[] statuses) {
+        if (length < 0 || startEpochSeconds.length < length || taskDurations.length < length || dueDates.length < length || statuses.length < length) {
+            throw new IllegalArgumentException(String.format("Batch arrays do not line up: %d rows, %d starts, %d durations, %d due dates, %d statuses",
+                    length, startEpochSeconds.length, taskDurations.length, dueDates.length, statuses.length));
+        }
+        return calculateRows(new ArrayRows(ZoneOffsetCache.forZone(zone), startEpochSeconds, taskDurations, dueDates, statuses), length, "batch");
+    }
+
+    /**
+     * Calculates the due date of every task in an off heap store, writing the due dates and statuses back into its records.
+     * Tasks that fail validation are flagged by their status rather than thrown.
+     * Large stores are split across the common fork join pool, small ones run on the calling thread.
+     * @param store the tasks, must not be added to while calculating
+     * @return the number of tasks that failed validation
+     */
+    public int calculateDueDates(TaskStore store) {
+        return calculateRows(new StoreRows(store), store.size(), "store");
+    }
+
+    private int calculateRows(BatchRows rows, int size, String source) {
+        BatchCalculation calculation = new BatchCalculation(workingTimeIndex, rows, 0, size);
+        int rejected = size < PARALLEL_THRESHOLD ? calculation.compute() : ForkJoinPool.commonPool().invoke(calculation);
+        if (rejected > 0) {
+            logger.log(Level.WARNING, () -> String.format("Rejected %d of %d tasks in %s", rejected, size, source));
+        }
+        if (metrics != null) {
+            long[] counts = new long[DueDateStatus.INTERNAL_ERROR + 1];
+            for (int i = 0; i < size; i++) {
+                counts[rows.statusAt(i)]++;
+            }
+            recordBatch(counts);
+        }
+        return rejected;
+    }
+
+    // Rows of a batch, read and written in place so arrays and task stores share one calculation
+    private interface BatchRows {
+
+        ZoneOffsetCache zoneOffsetsAt(int row);
+
+        long startEpochSecondAt(int row);
+
+        int taskDurationAt(int row);
+
+        byte statusAt(int row);
+
+        // The due date is zero for rows that failed
+        void setDueDateAt(int row, long dueDate, byte status);
+    }
+
+    // Columnar arrays in a single zone, due dates of rows that failed are left untouched
+    private static final class ArrayRows implements BatchRows {
+
+        private final ZoneOffsetCache offsets;
+        private final long[] startEpochSeconds;
+        private final int[] taskDurations;
+        private final long[] dueDates;
+        private final byte[] statuses;
+
+        ArrayRows(ZoneOffsetCache offsets, long[] startEpochSeconds, int[] taskDurations, long[] dueDates, byte[] statuses) {
+            this.offsets = offsets;
+            this.startEpochSeconds = startEpochSeconds;
+            this.taskDurations = taskDurations;
+            this.dueDates = dueDates;
+            this.statuses = statuses;
+        }
+
+        @Override
+        public ZoneOffsetCache zoneOffsetsAt(int row) {
+            return offsets;
+        }
+
+        @Override
+        public long startEpochSecondAt(int row) {
+            return startEpochSeconds[row];
+        }
+
+        @Override
+        public int taskDurationAt(int row) {
+            return taskDurations[row];
+        }
+
+        @Override
+        public byte statusAt(int row) {
+            return statuses[row];
+        }
+
+        @Override
+        public void setDueDateAt(int row, long dueDate, byte status) {
+            if (status == DueDateStatus.OK) {
+                dueDates[row] = dueDate;
+            }
+            statuses[row] = status;
+        }
+    }
+
+    // Records of an off heap task store
+    private static final class StoreRows implements BatchRows {
+
+        private final TaskStore store;
+
+        StoreRows(TaskStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public ZoneOffsetCache zoneOffsetsAt(int row) {
+            return store.zoneOffsetsAt(row);
+        }
+
+        @Override
+        public long startEpochSecondAt(int row) {
+            return store.startEpochSecondAt(row);
+        }
+
+        @Override
+        public int taskDurationAt(int row) {
+            return store.taskDurationAt(row);
+        }
+
+        @Override
+        public byte statusAt(int row) {
+            return store.getStatus(row);
+        }
 
-        // Weekend Check
-        int dayOfWeek = dueDate.get(Calendar.DAY_OF_WEEK);
-        if (dayOfWeek == Calendar.SATURDAY) {
-            dueDate.add(Calendar.DAY_OF_YEAR, 2); // Skip to monday
-            return incrementTaskDueDate(dueDate, hoursRemain);
+        @Override
+        public void setDueDateAt(int row, long dueDate, byte status) {
+            store.setDueDateAt(row, dueDate, status);
         }
-        // Should never hit this
-        if (dayOfWeek == Calendar.SUNDAY) {
-            dueDate.add(Calendar.DAY_OF_YEAR, 1); //Skip to monday
-            return incrementTaskDueDate(dueDate, hoursRemain);
+    }
+
+    // Splits a batch in halves until it is small enough to calculate sequentially
+    private static class BatchCalculation extends RecursiveTask<Integer> {
+
+        private final WorkingTimeIndex workingTimeIndex;
+        private final BatchRows rows;
+        private final int from;
+        private final int to;
+
+        BatchCalculation(WorkingTimeIndex workingTimeIndex, BatchRows rows, int from, int to) {
+            this.workingTimeIndex = workingTimeIndex;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                return calculateRange();
+            }
+            int middle = (from + to) >>> 1;
+            BatchCalculation left = new BatchCalculation(workingTimeIndex, rows, from, middle);
+            BatchCalculation right = new BatchCalculation(workingTimeIndex, rows, middle, to);
+            left.fork();
+            return right.compute() + left.join();
         }
 
-        // Base case
-        if (hoursRemain == 0) {
-            if (validateDateForWorkingHours(dueDate)) { // Confirm we have a valid date
-                return dueDate;
-            } else { // If we land here it means we need to adjust forward to the next workday as we are outside working hours
-                dueDate.add(Calendar.HOUR_OF_DAY, NON_WORK_HOURS); //Increment to next workday (Weekends handled above)
-                return incrementTaskDueDate(dueDate, 0);
+        private int calculateRange() {
+            int rejected = 0;
+            for (int i = from; i < to; i++) {
+                ZoneOffsetCache offsets = rows.zoneOffsetsAt(i);
+                long localStart = offsets.toLocalEpochSecond(rows.startEpochSecondAt(i));
+                int taskDuration = rows.taskDurationAt(i);
+                byte status = validate(workingTimeIndex, localStart, taskDuration);
+                long dueDate = 0;
+                if (status == DueDateStatus.OK) {
+                    try {
+                        dueDate = offsets.toEpochSecond(workingTimeIndex.addWorkingSeconds(localStart, toSeconds(taskDuration)));
+                    } catch (DateTimeException | ArithmeticException e) {
+                        status = DueDateStatus.INTERNAL_ERROR;
+                    }
+                }
+                if (status != DueDateStatus.OK) {
+                    rejected++;
+                }
+                rows.setDueDateAt(i, dueDate, status);
             }
-        } else {  // continue to increment
-            int currentHour = dueDate.get(Calendar.HOUR_OF_DAY);
-            int hoursLeftInDay = WORKDAY_END_HOUR - currentHour;
-            if (hoursRemain > hoursLeftInDay) {
-                dueDate.add(Calendar.HOUR_OF_DAY, hoursLeftInDay + NON_WORK_HOURS); //hours consume today + shift forward to next workday
-                return incrementTaskDueDate(dueDate, hoursRemain - hoursLeftInDay);
-            } else {
-                dueDate.add(Calendar.HOUR_OF_DAY, hoursRemain);
-                return incrementTaskDueDate(dueDate, 0); //Recur again in case we roll into a weekend
+            return rejected;
+        }
+    }
+
+    // Calculates a validated task, anything going wrong from here on is a bug
+    private long addWorkingHours(ZoneOffsetCache offsets, long localStart, int taskDuration) throws TaskHandlerException {
+        try {
+            return offsets.toEpochSecond(workingTimeIndex.addWorkingSeconds(localStart, toSeconds(taskDuration)));
+        } catch (DateTimeException | ArithmeticException e) {
+            if (metrics != null) {
+                metrics.recordInternalErrors(1);
             }
+            logger.log(Level.SEVERE, "Date has been miscalculated, please investigate!", e);
+            throw new TaskHandlerException("Error in due date calculation");
         }
     }
 
-    // This method is used for validating task inputs and calculation results
+    private void recordRejected(byte status) {
+        if (status == DueDateStatus.INVALID_START) {
+            metrics.recordInvalidDates(1);
+        } else {
+            metrics.recordInvalidLengths(1);
+        }
+    }
+
+    // Counts are indexed by status code
+    private void recordBatch(long[] counts) {
+        metrics.recordSuccesses(counts[DueDateStatus.OK]);
+        metrics.recordInvalidDates(counts[DueDateStatus.INVALID_START]);
+        metrics.recordInvalidLengths(counts[DueDateStatus.INVALID_LENGTH]);
+        metrics.recordInternalErrors(counts[DueDateStatus.INTERNAL_ERROR]);
+    }
+
+    // This method is used for validating task inputs
     // UPDATE WITH CARE
-    private boolean validateDateForWorkingHours(Calendar targetDate) {
-        //Check if Weekend
-        int dayOfWeek = targetDate.get(Calendar.DAY_OF_WEEK);
-        if (dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY) {
-            return false;
-        }
-
-        //Check time, ignoring millis
-        int hours = targetDate.get(Calendar.HOUR_OF_DAY);
-        int minutes = targetDate.get(Calendar.MINUTE);
-        int seconds = targetDate.get(Calendar.SECOND);
-        if (hours < WORKDAY_START_HOUR || // before work hours
-                hours > WORKDAY_END_HOUR || // after work hours
-                (hours == WORKDAY_END_HOUR && minutes > 0) || // after work (minutes)
-                (hours == WORKDAY_END_HOUR && minutes == 0 && seconds > 0)) // after work (seconds)
-            {
-            return false;
-        }
-        return true;
-    }
-
-    // Creates a calendar clearing Millis
-    private Calendar formatDate(ZonedDateTime targetDate) {
-        Calendar resultCalendar = GregorianCalendar.from(targetDate);
-        resultCalendar.clear(Calendar.MILLISECOND);
-        return resultCalendar;
+    private static byte validate(WorkingTimeIndex workingTimeIndex, long localStart, int taskDuration) {
+        if (!workingTimeIndex.isWorkingTime(localStart)) {
+            return DueDateStatus.INVALID_START;
+        }
+        if (taskDuration <= 0) {
+            return DueDateStatus.INVALID_LENGTH;
+        }
+        return DueDateStatus.OK;
+    }
+
+    private static long toSeconds(int taskDuration) {
+        return (long) taskDuration * DueDateCalculator.SECONDS_PER_HOUR;
+    }
+
+    /**
+     * Collects the optional collaborators of a handler, anything never set keeps the default of {@link #TaskHandler()}.
+     */
+    public static final class Builder {
+
+        private Logger logger = Logger.getLogger(TaskHandler.class.getName());
+        private WorkSchedule schedule = WorkSchedule.STANDARD;
+        private HolidayCalendar holidays = HolidayCalendar.EMPTY;
+        private TaskHandlerMetrics metrics;
+        private DueDateCache cache;
+        private DueDateIndex index;
+
+        private Builder() {}
+
+        /**
+         * @param logger used to log at runtime
+         */
+        public Builder logger(Logger logger) {
+            this.logger = logger;
+            return this;
+        }
+
+        /**
+         * @param schedule working hours for each day of the week, {@link WorkSchedule#STANDARD} by default
+         */
+        public Builder schedule(WorkSchedule schedule) {
+            this.schedule = schedule;
+            return this;
+        }
+
+        /**
+         * @param holidays non working days skipped in addition to days off in the schedule, none by default
+         */
+        public Builder holidays(HolidayCalendar holidays) {
+            this.holidays = holidays;
+            return this;
+        }
+
+        /**
+         * @param metrics receives outcome counts and latencies, null to disable metrics
+         */
+        public Builder metrics(TaskHandlerMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * @param cache remembers due dates of repeated tasks, may be shared with other handlers, null to disable caching
+         */
+        public Builder cache(DueDateCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * @param index receives the due dates of tasks calculated with an id, may be shared with other handlers, null to disable indexing
+         */
+        public Builder index(DueDateIndex index) {
+            this.index = index;
+            return this;
+        }
+
+        public TaskHandler build() {
+            return new TaskHandler(logger, schedule, holidays, metrics, cache, index);
+        }
     }
 }
@@ -0,0 +1,249 @@
+import calculation.DueDateStatus;
+import calculation.ZoneOffsetCache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tasks packed into fixed width records in off heap memory, 24 bytes each instead of the
+ * hundred or so bytes a {@link Task} and its {@link ZonedDateTime} take on the heap.
+ * Each record holds the start date, task duration, an index into the store's zone table,
+ * and once calculated by {@link TaskHandler#calculateDueDates(TaskStore)} the due date and its status.
+ * Records are read through index based accessors or a reusable {@link TaskView} without allocating.
+ * Adding tasks is not thread safe, reads may run concurrently once the store is filled.
+ */
+public class TaskStore {
+
+    public static final int RECORD_BYTES = 24;
+    public static final int MAX_CAPACITY = Integer.MAX_VALUE / RECORD_BYTES; // a direct buffer is limited to 2GB
+    public static final byte NOT_CALCULATED = -1; // status of tasks whose due date has not been calculated yet
+
+    // Record layout, the longs come first so they stay 8 byte aligned
+    private static final int START_OFFSET = 0;
+    private static final int DUE_DATE_OFFSET = 8;
+    private static final int DURATION_OFFSET = 16;
+    private static final int ZONE_OFFSET = 20;
+    private static final int STATUS_OFFSET = 22;
+
+    private final ByteBuffer records;
+    private final int capacity;
+    private int size;
+
+    private final List<ZoneId> zones = new ArrayList<>();
+    private final Map<ZoneId, Short> zoneIndexes = new HashMap<>();
+    private ZoneOffsetCache[] zoneOffsets = new ZoneOffsetCache[0];
+
+    /**
+     * Allocates an empty store
+     * @param capacity maximum number of tasks the store can hold
+     */
+    public TaskStore(int capacity) {
+        if (capacity < 0 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException(String.format("Invalid capacity: %d. Value must be between 0 and %d.", capacity, MAX_CAPACITY));
+        }
+        this.capacity = capacity;
+        this.records = ByteBuffer.allocateDirect(capacity * RECORD_BYTES).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * @param task the task to copy into the store
+     * @return index of the new record
+     */
+    public int add(Task task) {
+        ZonedDateTime startDate = task.getStartDate();
+        return add(startDate.toEpochSecond(), task.getTaskDuration(), startDate.getZone());
+    }
+
+    /**
+     * @param startEpochSecond start date of the task in seconds since the epoch
+     * @param taskDuration length of the task in working hours
+     * @param zone time zone the working hours apply in
+     * @return index of the new record
+     */
+    public int add(long startEpochSecond, int taskDuration, ZoneId zone) {
+        if (size == capacity) {
+            throw new IllegalStateException(String.format("Task store is full at %d tasks", capacity));
+        }
+        short zoneIndex = zoneIndex(zone);
+        int index = size++;
+        write(index * RECORD_BYTES, startEpochSecond, taskDuration, zoneIndex);
+        return index;
+    }
+
+    /**
+     * Replaces a task, its due date has to be calculated again
+     * @param index record to overwrite
+     */
+    public void set(int index, long startEpochSecond, int taskDuration, ZoneId zone) {
+        int base = offset(index);
+        write(base, startEpochSecond, taskDuration, zoneIndex(zone));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Removes every task, the zone table is kept
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public long getStartEpochSecond(int index) {
+        return records.getLong(offset(index) + START_OFFSET);
+    }
+
+    public int getTaskDuration(int index) {
+        return records.getInt(offset(index) + DURATION_OFFSET);
+    }
+
+    public ZoneId getZone(int index) {
+        return zones.get(records.getShort(offset(index) + ZONE_OFFSET));
+    }
+
+    /**
+     * @return the due date in seconds since the epoch, only meaningful when the status is OK
+     */
+    public long getDueDate(int index) {
+        return records.getLong(offset(index) + DUE_DATE_OFFSET);
+    }
+
+    /**
+     * @return a {@link DueDateStatus} code, or {@link #NOT_CALCULATED}
+     */
+    public byte getStatus(int index) {
+        return records.get(offset(index) + STATUS_OFFSET);
+    }
+
+    /**
+     * @return a flyweight that can be moved over the records of this store
+     */
+    public TaskView view() {
+        return new TaskView();
+    }
+
+    // Used by the task handler while calculating, index checks are done by the caller
+    long startEpochSecondAt(int index) {
+        return records.getLong(index * RECORD_BYTES + START_OFFSET);
+    }
+
+    int taskDurationAt(int index) {
+        return records.getInt(index * RECORD_BYTES + DURATION_OFFSET);
+    }
+
+    ZoneOffsetCache zoneOffsetsAt(int index) {
+        return zoneOffsets[records.getShort(index * RECORD_BYTES + ZONE_OFFSET)];
+    }
+
+    void setDueDateAt(int index, long dueDate, byte status) {
+        int base = index * RECORD_BYTES;
+        records.putLong(base + DUE_DATE_OFFSET, dueDate);
+        records.put(base + STATUS_OFFSET, status);
+    }
+
+    private void write(int base, long startEpochSecond, int taskDuration, short zoneIndex) {
+        records.putLong(base + START_OFFSET, startEpochSecond);
+        records.putLong(base + DUE_DATE_OFFSET, 0);
+        records.putInt(base + DURATION_OFFSET, taskDuration);
+        records.putShort(base + ZONE_OFFSET, zoneIndex);
+        records.put(base + STATUS_OFFSET, NOT_CALCULATED);
+    }
+
+    private int offset(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(String.format("Task index %d out of bounds for store of %d tasks", index, size));
+        }
+        return index * RECORD_BYTES;
+    }
+
+    private short zoneIndex(ZoneId zone) {
+        Short index = zoneIndexes.get(zone);
+        if (index != null) {
+            return index;
+        }
+        if (zones.size() > Short.MAX_VALUE) {
+            throw new IllegalStateException(String.format("Task store can not hold more than %d time zones", Short.MAX_VALUE + 1));
+        }
+        short newIndex = (short) zones.size();
+        zones.add(zone);
+        zoneIndexes.put(zone, newIndex);
+        ZoneOffsetCache[] grown = Arrays.copyOf(zoneOffsets, zones.size());
+        grown[newIndex] = ZoneOffsetCache.forZone(zone);
+        zoneOffsets = grown;
+        return newIndex;
+    }
+
+    /**
+     * Reusable window onto one record of the store, move it with {@link #at(int)}.
+     * Not thread safe, give each thread its own view.
+     */
+    public class TaskView {
+
+        private int index = -1;
+        private int base;
+
+        private TaskView() {
+        }
+
+        /**
+         * @param index record to look at
+         * @return this view
+         */
+        public TaskView at(int index) {
+            this.base = offset(index);
+            this.index = index;
+            return this;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getStartEpochSecond() {
+            return records.getLong(base + START_OFFSET);
+        }
+
+        public int getTaskDuration() {
+            return records.getInt(base + DURATION_OFFSET);
+        }
+
+        public ZoneId getZone() {
+            return zones.get(records.getShort(base + ZONE_OFFSET));
+        }
+
+        public long getDueDate() {
+            return records.getLong(base + DUE_DATE_OFFSET);
+        }
+
+        public byte getStatus() {
+            return records.get(base + STATUS_OFFSET);
+        }
+
+        /**
+         * @return a new task object for the record, allocates
+         */
+        public Task toTask() {
+            return new Task(Instant.ofEpochSecond(getStartEpochSecond()).atZone(getZone()), getTaskDuration());
+        }
+
+        /**
+         * @return the due date in the task's time zone, allocates, null unless the status is OK
+         */
+        public ZonedDateTime getDueDateTime() {
+            return getStatus() == DueDateStatus.OK ? Instant.ofEpochSecond(getDueDate()).atZone(getZone()) : null;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package cache;
+
+import holidays.HolidayCalendar;
+import schedule.WorkSchedule;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of calculated due dates, keyed on start date, task duration, zone, schedule and holidays.
+ * Entries are spread over independently locked segments so threads only contend when they hit the same segment.
+ * Each segment evicts in the style of W-TinyLFU: new entries land in a small LRU window, and an entry leaving
+ * the window only displaces the least recently used main entry on probation if it has been asked for more often recently.
+ * Main entries that are hit again move to a protected area, so a burst of one off keys can not flush out the hot ones.
+ * Holiday calendars are compared by identity, share one calendar instance between handlers that share the cache.
+ * Segments keep their entries in preallocated primitive arrays, found by open addressing and queued through
+ * index links, so looking up or offering a due date allocates nothing.
+ */
+public class DueDateCache {
+
+    public static final long MISSING = Long.MIN_VALUE; // returned by get on a miss
+
+    private static final int MIN_SEGMENT_SIZE = 64;
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final Segment[] segments;
+    private final int segmentMask;
+    private final int maximumSize;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Creates an empty cache
+     * @param maximumSize most entries the cache holds at once
+     */
+    public DueDateCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException(String.format("Invalid maximum size: %d. Value must be greater than zero.", maximumSize));
+        }
+        // Enough segments to spread the processors out, each still big enough for frequencies to matter
+        int wanted = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1;
+        int segmentCount = Math.max(1, Math.min(wanted, Integer.highestOneBit(maximumSize / MIN_SEGMENT_SIZE)));
+        this.segments = new Segment[segmentCount];
+        this.segmentMask = segmentCount - 1;
+        this.maximumSize = maximumSize;
+        for (int i = 0; i < segmentCount; i++) {
+            // Remainders go to the first segments so the total is exactly the maximum size
+            int segmentSize = maximumSize / segmentCount + (i < maximumSize % segmentCount ? 1 : 0);
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    /**
+     * @return the cached due date in seconds since the epoch, or {@link #MISSING}
+     */
+    public long get(long startEpochSecond, int taskDuration, ZoneId zone, WorkSchedule schedule, HolidayCalendar holidays) {
+        int hash = hash(startEpochSecond, taskDuration, zone, schedule, holidays);
+        long dueDate = segments[hash & segmentMask].get(hash, startEpochSecond, taskDuration, zone, schedule, holidays);
+        if (dueDate == MISSING) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return dueDate;
+    }
+
+    /**
+     * Offers a due date to the cache, which may decline it if the key is rarely used
+     * @param dueDate the calculated due date in seconds since the epoch
+     */
+    public void put(long startEpochSecond, int taskDuration, ZoneId zone, WorkSchedule schedule, HolidayCalendar holidays, long dueDate) {
+        int hash = hash(startEpochSecond, taskDuration, zone, schedule, holidays);
+        int evicted = segments[hash & segmentMask].put(hash, startEpochSecond, taskDuration, zone, schedule, holidays, dueDate);
+        if (evicted > 0) {
+            evictionCount.add(evicted);
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return number of entries currently held
+     */
+    public long size() {
+        long size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * Removes every entry, statistics are kept
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+    }
+
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount.sum(), size());
+    }
+
+    private static int hash(long startEpochSecond, int taskDuration, ZoneId zone, WorkSchedule schedule, HolidayCalendar holidays) {
+        int h = Long.hashCode(startEpochSecond);
+        h = h * 31 + taskDuration;
+        h = h * 31 + zone.hashCode();
+        h = h * 31 + schedule.hashCode();
+        h = h * 31 + System.identityHashCode(holidays);
+        // Spread the bits so the low ones picking the segment depend on the whole key
+        h = (h ^ (h >>> 16)) * 0x45d9f3b;
+        return h ^ (h >>> 16);
+    }
+
+    // One lock, window, main area and frequency sketch per segment
+    private static class Segment {
+
+        // Queues an entry can be on. Main entries start on probation and are protected once they are hit again,
+        // only probation entries are evicted
+        private static final int WINDOW = 0;
+        private static final int PROBATION = 1;
+        private static final int PROTECTED = 2;
+        private static final int NONE = -1;
+
+        // Entries by slot. The window may overflow by one entry before it is trimmed, hence one slot more than the size
+        private final long[] startEpochSeconds;
+        private final int[] taskDurations;
+        private final ZoneId[] zones;
+        private final WorkSchedule[] schedules;
+        private final HolidayCalendar[] holidayCalendars;
+        private final long[] dueDates;
+        private final int[] hashes;
+        private final int[] queues;
+        private final int[] previous;
+        private final int[] next; // also links free slots
+        private int freeSlot = NONE;
+        private int usedSlots;
+
+        // Slot plus one for every bucket, zero when empty, probed linearly
+        private final int[] table;
+        private final int tableShift;
+
+        // Least recently used entry at the head of each queue, most recently used at the tail
+        private final int[] heads = {NONE, NONE, NONE};
+        private final int[] tails = {NONE, NONE, NONE};
+        private final int[] sizes = new int[3];
+
+        private final FrequencySketch sketch;
+        private final int windowSize;
+        private final int mainSize;
+        private final int protectedSize;
+
+        Segment(int size) {
+            this.windowSize = Math.max(1, size * WINDOW_PERCENT / 100);
+            this.mainSize = size - windowSize;
+            this.protectedSize = mainSize * PROTECTED_PERCENT / 100;
+            this.sketch = new FrequencySketch(size);
+
+            int capacity = size + 1;
+            this.startEpochSeconds = new long[capacity];
+            this.taskDurations = new int[capacity];
+            this.zones = new ZoneId[capacity];
+            this.schedules = new WorkSchedule[capacity];
+            this.holidayCalendars = new HolidayCalendar[capacity];
+            this.dueDates = new long[capacity];
+            this.hashes = new int[capacity];
+            this.queues = new int[capacity];
+            this.previous = new int[capacity];
+            this.next = new int[capacity];
+            // At most half full, so probes stay short and always reach an empty bucket
+            int tableSize = Integer.highestOneBit(capacity) << 2;
+            this.table = new int[tableSize];
+            this.tableShift = Integer.numberOfLeadingZeros(tableSize) + 1;
+        }
+
+        synchronized long get(int hash, long startEpochSecond, int taskDuration, ZoneId zone, WorkSchedule schedule, HolidayCalendar holidays) {
+            sketch.increment(hash);
+            int slot = find(hash, startEpochSecond, taskDuration, zone, schedule, holidays);
+            if (slot == NONE) {
+                return MISSING;
+            }
+            if (queues[slot] == PROBATION) {
+                unlink(slot);
+                protect(slot);
+            } else {
+                moveToTail(slot);
+            }
+            return dueDates[slot];
+        }
+
+        // Returns the number of entries dropped
+        synchronized int put(int hash, long startEpochSecond, int taskDuration, ZoneId zone, WorkSchedule schedule, HolidayCalendar holidays,
+                             long dueDate) {
+            int slot = find(hash, startEpochSecond, taskDuration, zone, schedule, holidays);
+            if (slot != NONE) {
+                dueDates[slot] = dueDate;
+                moveToTail(slot);
+                return 0;
+            }
+            slot = allocate();
+            startEpochSeconds[slot] = startEpochSecond;
+            taskDurations[slot] = taskDuration;
+            zones[slot] = zone;
+            schedules[slot] = schedule;
+            holidayCalendars[slot] = holidays;
+            dueDates[slot] = dueDate;
+            hashes[slot] = hash;
+            insert(slot);
+            append(WINDOW, slot);
+            if (sizes[WINDOW] <= windowSize) {
+                return 0;
+            }
+
+            int candidate = heads[WINDOW];
+            unlink(candidate);
+            if (sizes[PROBATION] + sizes[PROTECTED] < mainSize) {
+                append(PROBATION, candidate);
+                return 0;
+            }
+            int victims = sizes[PROBATION] == 0 ? PROTECTED : PROBATION;
+            if (sizes[victims] == 0) {
+                discard(candidate);
+                return 1;
+            }
+            int victim = heads[victims];
+            // The newcomer only gets in if it has been asked for more often than the entry it would replace
+            if (sketch.frequency(hashes[candidate]) > sketch.frequency(hashes[victim])) {
+                unlink(victim);
+                discard(victim);
+                append(PROBATION, candidate);
+            } else {
+                discard(candidate);
+            }
+            return 1;
+        }
+
+        synchronized int size() {
+            return sizes[WINDOW] + sizes[PROBATION] + sizes[PROTECTED];
+        }
+
+        synchronized void clear() {
+            Arrays.fill(table, 0);
+            // Drop the references so cleared zones, schedules and calendars can be collected
+            Arrays.fill(zones, null);
+            Arrays.fill(schedules, null);
+            Arrays.fill(holidayCalendars, null);
+            Arrays.fill(heads, NONE);
+            Arrays.fill(tails, NONE);
+            Arrays.fill(sizes, 0);
+            freeSlot = NONE;
+            usedSlots = 0;
+        }
+
+        private int find(int hash, long startEpochSecond, int taskDuration, ZoneId zone, WorkSchedule schedule, HolidayCalendar holidays) {
+            for (int bucket = bucket(hash); ; bucket = (bucket + 1) & (table.length - 1)) {
+                int slot = table[bucket] - 1;
+                if (slot == NONE) {
+                    return NONE;
+                }
+                // Shared zones and schedules are usually the same instance, equals only runs for copies
+                if (hashes[slot] == hash && startEpochSeconds[slot] == startEpochSecond && taskDurations[slot] == taskDuration
+                        && holidayCalendars[slot] == holidays
+                        && (zones[slot] == zone || zones[slot].equals(zone))
+                        && (schedules[slot] == schedule || schedules[slot].equals(schedule))) {
+                    return slot;
+                }
+            }
+        }
+
+        private void insert(int slot) {
+            int bucket = bucket(hashes[slot]);
+            while (table[bucket] != 0) {
+                bucket = (bucket + 1) & (table.length - 1);
+            }
+            table[bucket] = slot + 1;
+        }
+
+        // Takes an entry out of the table and frees its slot, the entry must not be on a queue
+        private void discard(int slot) {
+            int mask = table.length - 1;
+            int hole = bucket(hashes[slot]);
+            while (table[hole] != slot + 1) {
+                hole = (hole + 1) & mask;
+            }
+            // Shift later entries of the probe run back into the hole so lookups never stop short of them
+            for (int bucket = (hole + 1) & mask; table[bucket] != 0; bucket = (bucket + 1) & mask) {
+                int home = bucket(hashes[table[bucket] - 1]);
+                if (((bucket - home) & mask) >= ((bucket - hole) & mask)) {
+                    table[hole] = table[bucket];
+                    hole = bucket;
+                }
+            }
+            table[hole] = 0;
+            zones[slot] = null;
+            schedules[slot] = null;
+            holidayCalendars[slot] = null;
+            next[slot] = freeSlot;
+            freeSlot = slot;
+        }
+
+        private int allocate() {
+            if (freeSlot == NONE) {
+                return usedSlots++;
+            }
+            int slot = freeSlot;
+            freeSlot = next[slot];
+            return slot;
+        }
+
+        // The low bits of the hash picked the segment, the high bits of a multiplicative hash pick the bucket
+        private int bucket(int hash) {
+            return (hash * 0x9e3779b9) >>> tableShift;
+        }
+
+        private void protect(int slot) {
+            append(PROTECTED, slot);
+            if (sizes[PROTECTED] > protectedSize) {
+                int demoted = heads[PROTECTED];
+                unlink(demoted);
+                append(PROBATION, demoted);
+            }
+        }
+
+        private void moveToTail(int slot) {
+            int queue = queues[slot];
+            if (tails[queue] != slot) {
+                unlink(slot);
+                append(queue, slot);
+            }
+        }
+
+        private void append(int queue, int slot) {
+            queues[slot] = queue;
+            previous[slot] = tails[queue];
+            next[slot] = NONE;
+            if (tails[queue] == NONE) {
+                heads[queue] = slot;
+            } else {
+                next[tails[queue]] = slot;
+            }
+            tails[queue] = slot;
+            sizes[queue]++;
+        }
+
+        private void unlink(int slot) {
+            int queue = queues[slot];
+            if (previous[slot] == NONE) {
+                heads[queue] = next[slot];
+            } else {
+                next[previous[slot]] = next[slot];
+            }
+            if (next[slot] == NONE) {
+                tails[queue] = previous[slot];
+            } else {
+                previous[next[slot]] = previous[slot];
+            }
+            queues[slot] = NONE;
+            sizes[queue]--;
+        }
+    }
+}
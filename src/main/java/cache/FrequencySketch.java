@@ -0,0 +1,71 @@
+package cache;
+
+/**
+ * Count-min sketch of how often keys were seen recently, used to decide which entries are worth keeping.
+ * Four 4 bit counters per key, packed sixteen to a long. Once enough keys have been counted every counter
+ * is halved, so the estimates follow the recent traffic rather than all time totals.
+ * Not thread safe, guarded by the owning segment's lock.
+ */
+class FrequencySketch {
+
+    private static final long[] SEEDS = {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L; // clears the bit each counter loses when halved
+    private static final int MAX_COUNT = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int capacity) {
+        int tableSize = Integer.highestOneBit(Math.max(capacity, 8) - 1) << 1;
+        this.table = new long[tableSize];
+        this.tableMask = tableSize - 1;
+        this.sampleSize = 10 * Math.max(capacity, 8);
+    }
+
+    /**
+     * @param hash well spread hash of the key
+     * @return estimated number of recent occurrences, at most 15
+     */
+    int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long spread = spread(hash, row);
+            frequency = Math.min(frequency, (int) (table[index(spread)] >>> shift(spread)) & MAX_COUNT);
+        }
+        return frequency;
+    }
+
+    void increment(int hash) {
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long spread = spread(hash, row);
+            int index = index(spread);
+            int shift = shift(spread);
+            if (((table[index] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            }
+            additions /= 2;
+        }
+    }
+
+    private static long spread(int hash, int row) {
+        long spread = (hash + SEEDS[row]) * SEEDS[row];
+        return spread ^ (spread >>> 32);
+    }
+
+    private int index(long spread) {
+        return (int) (spread >>> 8) & tableMask;
+    }
+
+    private static int shift(long spread) {
+        return (int) (spread & 15) << 2;
+    }
+}
@@ -0,0 +1,124 @@
+package calculation;
+
+import schedule.WorkSchedule;
+
+/**
+ * Constant time due date arithmetic over a weekly work schedule.
+ * All values are local wall clock times expressed as seconds since 1970-01-01T00:00 local,
+ * callers are responsible for converting to and from their time zone.
+ */
+public final class DueDateCalculator {
+
+    public static final int SECONDS_PER_HOUR = 3600;
+    public static final int SECONDS_PER_DAY = 86400;
+
+    private static final int DAYS_PER_WEEK = 7;
+    private static final int EPOCH_DAY_MONDAY_OFFSET = 3; // 1970-01-01 was a Thursday
+
+    private DueDateCalculator() {}
+
+    /**
+     * Checks that a local time falls on a workday within its working hours, both ends inclusive.
+     * This is used for validating task inputs and calculation results - UPDATE WITH CARE
+     * @param schedule the working hours
+     * @param localEpochSecond local wall clock time in seconds
+     * @return true if the time is within working hours
+     */
+    public static boolean isWorkingTime(WorkSchedule schedule, long localEpochSecond) {
+        int dayOfWeek = dayOfWeek(Math.floorDiv(localEpochSecond, SECONDS_PER_DAY));
+        if (schedule.getWorkingSeconds(dayOfWeek) == 0) {
+            return false;
+        }
+        int secondOfDay = Math.floorMod(localEpochSecond, SECONDS_PER_DAY);
+        return secondOfDay >= schedule.getStartSecond(dayOfWeek) && secondOfDay <= schedule.getEndSecond(dayOfWeek);
+    }
+
+    /**
+     * Adds working hours to a valid start time.
+     * Whole work weeks are skipped arithmetically, so the cost does not depend on the task length.
+     * A due date landing exactly on the end of a workday stays on that day rather than rolling to the next workday.
+     * @param schedule the working hours
+     * @param localEpochSecond local wall clock start time, must satisfy {@link #isWorkingTime(WorkSchedule, long)}
+     * @param hours working hours to add, must be greater than zero
+     * @return the local wall clock due date in seconds
+     */
+    public static long addWorkingHours(WorkSchedule schedule, long localEpochSecond, int hours) {
+        return addWorkingSeconds(schedule, localEpochSecond, (long) hours * SECONDS_PER_HOUR);
+    }
+
+    /**
+     * Adds working seconds to a valid start time.
+     * @see #addWorkingHours(WorkSchedule, long, int)
+     */
+    public static long addWorkingSeconds(WorkSchedule schedule, long localEpochSecond, long seconds) {
+        long epochDay = Math.floorDiv(localEpochSecond, SECONDS_PER_DAY);
+        int secondOfDay = Math.floorMod(localEpochSecond, SECONDS_PER_DAY);
+        int dayOfWeek = dayOfWeek(epochDay);
+
+        long remaining = seconds;
+        int leftToday = schedule.getEndSecond(dayOfWeek) - secondOfDay;
+        if (remaining <= leftToday) {
+            return localEpochSecond + remaining;
+        }
+        remaining -= leftToday; // consume today
+
+        // Seven calendar days always hold exactly one work week
+        long weekSeconds = schedule.getWeekSeconds();
+        long weeks = (remaining - 1) / weekSeconds;
+        epochDay += weeks * DAYS_PER_WEEK;
+        remaining -= weeks * weekSeconds;
+
+        // Whatever is left fits within the next seven days, the last workday used is partially consumed
+        while (true) {
+            epochDay++;
+            dayOfWeek = dayOfWeek == DAYS_PER_WEEK - 1 ? 0 : dayOfWeek + 1;
+            int workingSeconds = schedule.getWorkingSeconds(dayOfWeek);
+            if (remaining <= workingSeconds) {
+                return epochDay * SECONDS_PER_DAY + schedule.getStartSecond(dayOfWeek) + remaining;
+            }
+            remaining -= workingSeconds;
+        }
+    }
+
+    /**
+     * Counts the working seconds between two local times.
+     * @param schedule the working hours
+     * @param localStart local wall clock start time in seconds
+     * @param localEnd local wall clock end time in seconds
+     * @return working seconds between the two times, negative if the end is before the start
+     */
+    public static long workingSecondsBetween(WorkSchedule schedule, long localStart, long localEnd) {
+        return workingSecondsSinceEpochWeek(schedule, localEnd) - workingSecondsSinceEpochWeek(schedule, localStart);
+    }
+
+    /**
+     * Working seconds up to a time of day, time outside working hours counts as zero
+     * @param schedule the working hours
+     * @param dayOfWeek 0 = Monday ... 6 = Sunday
+     * @param secondOfDay the time of day
+     * @return working seconds on the day before the time
+     */
+    public static int workingSecondsInDay(WorkSchedule schedule, int dayOfWeek, int secondOfDay) {
+        int elapsed = secondOfDay - schedule.getStartSecond(dayOfWeek);
+        return Math.min(Math.max(elapsed, 0), schedule.getWorkingSeconds(dayOfWeek));
+    }
+
+    /**
+     * @param epochDay local day since 1970-01-01
+     * @return 0 = Monday ... 6 = Sunday
+     */
+    public static int dayOfWeek(long epochDay) {
+        return Math.floorMod(epochDay + EPOCH_DAY_MONDAY_OFFSET, DAYS_PER_WEEK);
+    }
+
+    // Working seconds elapsed since the Monday before the epoch
+    private static long workingSecondsSinceEpochWeek(WorkSchedule schedule, long localEpochSecond) {
+        long epochDay = Math.floorDiv(localEpochSecond, SECONDS_PER_DAY);
+        int secondOfDay = Math.floorMod(localEpochSecond, SECONDS_PER_DAY);
+        long weeks = Math.floorDiv(epochDay + EPOCH_DAY_MONDAY_OFFSET, DAYS_PER_WEEK);
+        int dayOfWeek = dayOfWeek(epochDay);
+
+        return weeks * schedule.getWeekSeconds() + schedule.getWorkingSecondsBefore(dayOfWeek)
+                + workingSecondsInDay(schedule, dayOfWeek, secondOfDay);
+    }
+}
@@ -0,0 +1,15 @@
+package calculation;
+
+/**
+ * Outcome codes for due date calculations that report failures instead of throwing.
+ * Stored as bytes so they can be written into compact status arrays.
+ */
+public final class DueDateStatus {
+
+    public static final byte OK = 0;
+    public static final byte INVALID_START = 1; // start date outside of working hours
+    public static final byte INVALID_LENGTH = 2; // task length not greater than zero
+    public static final byte INTERNAL_ERROR = 3; // calculation failed, should never happen
+
+    private DueDateStatus() {}
+}
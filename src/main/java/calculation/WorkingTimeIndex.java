@@ -0,0 +1,266 @@
+package calculation;
+
+import holidays.HolidayCalendar;
+import schedule.WorkSchedule;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Prefix sums of working seconds per day, built lazily one year at a time, over a prefix sum of the year totals.
+ * Year totals are counted per weekday when the index is created, without building any day table.
+ * Due dates become an offset plus a binary search for the year and one within it, working time between two dates
+ * becomes a subtraction. Only the tables of the years the dates fall in are ever built.
+ * Holidays are zero length days in the tables, so skipping one costs the same as skipping a weekend.
+ * Tables hold local wall clock time so a single index serves every time zone.
+ * Built tables are immutable and safe to share between threads.
+ */
+public final class WorkingTimeIndex {
+
+    public static final int MIN_YEAR = 1900;
+    public static final int MAX_YEAR = 2399;
+
+    private static final long[] YEAR_START_EPOCH_DAYS = new long[MAX_YEAR - MIN_YEAR + 2];
+
+    static {
+        for (int year = MIN_YEAR; year <= MAX_YEAR + 1; year++) {
+            YEAR_START_EPOCH_DAYS[year - MIN_YEAR] = LocalDate.of(year, 1, 1).toEpochDay();
+        }
+    }
+
+    private static final long COVERED_START = YEAR_START_EPOCH_DAYS[0] * DueDateCalculator.SECONDS_PER_DAY;
+    private static final long COVERED_END = YEAR_START_EPOCH_DAYS[YEAR_START_EPOCH_DAYS.length - 1] * DueDateCalculator.SECONDS_PER_DAY;
+
+    private final WorkSchedule schedule;
+    private final HolidayCalendar holidays;
+
+    // yearStarts[y] holds the working seconds in the indexed years before year y, the last entry is the total
+    private final long[] yearStarts = new long[YEAR_START_EPOCH_DAYS.length];
+    // cumulative[d] holds the working seconds in the year before day d, the last entry is the year total
+    private final AtomicReferenceArray<int[]> cumulativeByYear = new AtomicReferenceArray<>(MAX_YEAR - MIN_YEAR + 1);
+
+    /**
+     * Index for working hours (9am - 5pm) Mon-Fri without holidays
+     */
+    public WorkingTimeIndex() {
+        this(WorkSchedule.STANDARD, HolidayCalendar.EMPTY);
+    }
+
+    /**
+     * Index for a work schedule excluding holidays
+     * @param schedule the working hours
+     * @param holidays the non working days, all within {@link #MIN_YEAR} - {@link #MAX_YEAR}
+     */
+    public WorkingTimeIndex(WorkSchedule schedule, HolidayCalendar holidays) {
+        if (!holidays.isEmpty() && (holidays.getFirstYear() < MIN_YEAR || holidays.getLastYear() > MAX_YEAR)) {
+            throw new IllegalArgumentException(String.format("Holidays from %d to %d are outside of the supported years %d - %d",
+                    holidays.getFirstYear(), holidays.getLastYear(), MIN_YEAR, MAX_YEAR));
+        }
+        this.schedule = schedule;
+        this.holidays = holidays;
+        for (int yearIndex = 0; yearIndex < yearStarts.length - 1; yearIndex++) {
+            yearStarts[yearIndex + 1] = yearStarts[yearIndex] + yearTotal(yearIndex);
+        }
+    }
+
+    /**
+     * @return the working hours the index was built for
+     */
+    public WorkSchedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * @return the holidays the index was built for
+     */
+    public HolidayCalendar getHolidays() {
+        return holidays;
+    }
+
+    /**
+     * Checks that a local time falls on a workday within its working hours, both ends inclusive.
+     * @param localEpochSecond local wall clock time in seconds
+     * @return true if the time is within working hours
+     */
+    public boolean isWorkingTime(long localEpochSecond) {
+        return DueDateCalculator.isWorkingTime(schedule, localEpochSecond)
+                && !holidays.isHoliday(Math.floorDiv(localEpochSecond, DueDateCalculator.SECONDS_PER_DAY));
+    }
+
+    /**
+     * Adds working seconds to a valid start time.
+     * A due date landing exactly on the end of a workday stays on that day.
+     * Time outside of the indexed years is handled by {@link DueDateCalculator}.
+     * @param localEpochSecond local wall clock start time, must satisfy {@link #isWorkingTime(long)}
+     * @param seconds working seconds to add, must be greater than zero
+     * @return the local wall clock due date in seconds
+     */
+    public long addWorkingSeconds(long localEpochSecond, long seconds) {
+        if (localEpochSecond >= COVERED_END) {
+            return DueDateCalculator.addWorkingSeconds(schedule, localEpochSecond, seconds);
+        }
+
+        // Working seconds from the start of the indexed years to the due date
+        long target = seconds;
+        if (localEpochSecond < COVERED_START) {
+            long beforeIndex = DueDateCalculator.workingSecondsBetween(schedule, localEpochSecond, COVERED_START);
+            if (seconds <= beforeIndex) {
+                return DueDateCalculator.addWorkingSeconds(schedule, localEpochSecond, seconds);
+            }
+            target -= beforeIndex;
+        } else {
+            target += offsetFromStart(localEpochSecond);
+        }
+
+        long total = yearStarts[yearStarts.length - 1];
+        if (target > total) {
+            return DueDateCalculator.addWorkingSeconds(schedule, lastWorkdayEnd(), target - total);
+        }
+
+        // Year whose running total first reaches the target, then the first day within it that does,
+        // that day always has working time
+        int yearIndex = firstReaching(yearStarts, target) - 1;
+        int[] cumulative = cumulative(yearIndex);
+        long offset = target - yearStarts[yearIndex];
+        int day = firstReaching(cumulative, (int) offset) - 1;
+        long dueEpochDay = YEAR_START_EPOCH_DAYS[yearIndex] + day;
+        int startSecond = schedule.getStartSecond(DueDateCalculator.dayOfWeek(dueEpochDay));
+        return dueEpochDay * DueDateCalculator.SECONDS_PER_DAY + startSecond + (offset - cumulative[day]);
+    }
+
+    /**
+     * Counts the working seconds between two local times.
+     * @param localStart local wall clock start time in seconds
+     * @param localEnd local wall clock end time in seconds
+     * @return working seconds between the two times, negative if the end is before the start
+     */
+    public long workingSecondsBetween(long localStart, long localEnd) {
+        if (localEnd < localStart) {
+            return -workingSecondsBetween(localEnd, localStart);
+        }
+
+        long seconds = 0;
+        if (localStart < COVERED_START) {
+            seconds += DueDateCalculator.workingSecondsBetween(schedule, localStart, Math.min(localEnd, COVERED_START));
+        }
+        if (localEnd > COVERED_END) {
+            seconds += DueDateCalculator.workingSecondsBetween(schedule, Math.max(localStart, COVERED_END), localEnd);
+        }
+
+        long indexedStart = Math.max(localStart, COVERED_START);
+        long indexedEnd = Math.min(localEnd, COVERED_END - 1);
+        if (indexedStart <= indexedEnd) {
+            seconds += offsetFromStart(indexedEnd) - offsetFromStart(indexedStart);
+        }
+        return seconds;
+    }
+
+    // Working seconds in the indexed years before a covered time
+    private long offsetFromStart(long localEpochSecond) {
+        int yearIndex = yearIndex(Math.floorDiv(localEpochSecond, DueDateCalculator.SECONDS_PER_DAY));
+        return yearStarts[yearIndex] + offsetInYear(cumulative(yearIndex), yearIndex, localEpochSecond);
+    }
+
+    // Working seconds in the year before a time, time outside working hours counts as zero
+    private long offsetInYear(int[] cumulative, int yearIndex, long localEpochSecond) {
+        long epochDay = Math.floorDiv(localEpochSecond, DueDateCalculator.SECONDS_PER_DAY);
+        int day = (int) (epochDay - YEAR_START_EPOCH_DAYS[yearIndex]);
+        if (cumulative[day + 1] == cumulative[day]) {
+            return cumulative[day]; // day off or holiday
+        }
+        int secondOfDay = Math.floorMod(localEpochSecond, DueDateCalculator.SECONDS_PER_DAY);
+        return cumulative[day] + DueDateCalculator.workingSecondsInDay(schedule, DueDateCalculator.dayOfWeek(epochDay), secondOfDay);
+    }
+
+    private int[] cumulative(int yearIndex) {
+        int[] cumulative = cumulativeByYear.get(yearIndex);
+        if (cumulative == null) {
+            // Racing threads build identical tables, whichever lands first is kept
+            cumulativeByYear.compareAndSet(yearIndex, null, buildYear(yearIndex));
+            cumulative = cumulativeByYear.get(yearIndex);
+        }
+        return cumulative;
+    }
+
+    private int[] buildYear(int yearIndex) {
+        long firstDay = YEAR_START_EPOCH_DAYS[yearIndex];
+        int days = (int) (YEAR_START_EPOCH_DAYS[yearIndex + 1] - firstDay);
+        int[] cumulative = new int[days + 1];
+        for (int day = 0; day < days; day++) {
+            int workingSeconds = holidays.isHoliday(firstDay + day) ? 0 : schedule.getWorkingSeconds(DueDateCalculator.dayOfWeek(firstDay + day));
+            cumulative[day + 1] = cumulative[day] + workingSeconds;
+        }
+        return cumulative;
+    }
+
+    // Same as the last entry of the year's table, counting each weekday instead of walking the days
+    private long yearTotal(int yearIndex) {
+        long firstDay = YEAR_START_EPOCH_DAYS[yearIndex];
+        int days = (int) (YEAR_START_EPOCH_DAYS[yearIndex + 1] - firstDay);
+        int firstDayOfWeek = DueDateCalculator.dayOfWeek(firstDay);
+        long total = 0;
+        for (int dayOfWeek = 0; dayOfWeek < 7; dayOfWeek++) {
+            int first = Math.floorMod(dayOfWeek - firstDayOfWeek, 7);
+            int occurrences = (days - 1 - first) / 7 + 1;
+            total += (long) occurrences * schedule.getWorkingSeconds(dayOfWeek);
+        }
+        int year = MIN_YEAR + yearIndex;
+        if (!holidays.isEmpty() && year >= holidays.getFirstYear() && year <= holidays.getLastYear()) {
+            for (long epochDay = firstDay; epochDay < firstDay + days; epochDay++) {
+                if (holidays.isHoliday(epochDay)) {
+                    total -= schedule.getWorkingSeconds(DueDateCalculator.dayOfWeek(epochDay));
+                }
+            }
+        }
+        return total;
+    }
+
+    // End of the last workday in the indexed years, a valid start for continuing with plain arithmetic
+    private long lastWorkdayEnd() {
+        long epochDay = YEAR_START_EPOCH_DAYS[YEAR_START_EPOCH_DAYS.length - 1] - 1;
+        while (schedule.getWorkingSeconds(DueDateCalculator.dayOfWeek(epochDay)) == 0) {
+            epochDay--;
+        }
+        return epochDay * DueDateCalculator.SECONDS_PER_DAY + schedule.getEndSecond(DueDateCalculator.dayOfWeek(epochDay));
+    }
+
+    private static int firstReaching(long[] cumulative, long offset) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int firstReaching(int[] cumulative, int offset) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] < offset) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Position of the year holding a covered epoch day
+    private static int yearIndex(long epochDay) {
+        int index = (int) Math.min((epochDay - YEAR_START_EPOCH_DAYS[0]) * 400 / 146097, YEAR_START_EPOCH_DAYS.length - 2); // 146097 days per 400 years
+        while (YEAR_START_EPOCH_DAYS[index + 1] <= epochDay) {
+            index++;
+        }
+        while (YEAR_START_EPOCH_DAYS[index] > epochDay) {
+            index--;
+        }
+        return index;
+    }
+}
@@ -0,0 +1,112 @@
+package calculation;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Offset transition timeline of a time zone, flattened into primitive arrays once and shared.
+ * Converts between epoch seconds and local wall clock seconds with a binary search, without allocating.
+ * Local times in a DST gap or overlap resolve the same way as {@link LocalDateTime#atZone(ZoneId)}.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class ZoneOffsetCache {
+
+    // Transitions are expanded up to the end of the years covered by the working time index
+    private static final long END_EPOCH_SECOND = LocalDateTime.of(WorkingTimeIndex.MAX_YEAR + 1, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+    private static final long END_LOCAL_SECOND = END_EPOCH_SECOND - DueDateCalculator.SECONDS_PER_DAY; // clear of any offset
+
+    private static final ConcurrentHashMap<ZoneId, ZoneOffsetCache> CACHES = new ConcurrentHashMap<>();
+
+    private final ZoneId zone;
+    private final ZoneRules rules;
+    private final int initialOffset; // offset before the first transition
+    private final long[] transitionEpochSeconds;
+    private final int[] offsetsAfter;
+    private final long[] localThresholds; // local time from which the offset after a transition applies
+
+    private ZoneOffsetCache(ZoneId zone) {
+        this.zone = zone;
+        this.rules = zone.getRules();
+
+        List<ZoneOffsetTransition> transitions = new ArrayList<>();
+        if (!rules.isFixedOffset()) {
+            ZoneOffsetTransition transition = rules.nextTransition(Instant.MIN);
+            while (transition != null && transition.toEpochSecond() < END_EPOCH_SECOND) {
+                transitions.add(transition);
+                transition = rules.nextTransition(transition.getInstant());
+            }
+        }
+
+        this.initialOffset = transitions.isEmpty()
+                ? rules.getOffset(Instant.EPOCH).getTotalSeconds()
+                : transitions.get(0).getOffsetBefore().getTotalSeconds();
+        this.transitionEpochSeconds = new long[transitions.size()];
+        this.offsetsAfter = new int[transitions.size()];
+        this.localThresholds = new long[transitions.size()];
+        for (int i = 0; i < transitions.size(); i++) {
+            ZoneOffsetTransition transition = transitions.get(i);
+            int before = transition.getOffsetBefore().getTotalSeconds();
+            int after = transition.getOffsetAfter().getTotalSeconds();
+            transitionEpochSeconds[i] = transition.toEpochSecond();
+            offsetsAfter[i] = after;
+            // Gaps and overlaps both keep the earlier offset until the later wall clock time is reached
+            localThresholds[i] = transition.toEpochSecond() + Math.max(before, after);
+        }
+    }
+
+    /**
+     * @param zone the time zone
+     * @return the shared cache for the zone, built on first use
+     */
+    public static ZoneOffsetCache forZone(ZoneId zone) {
+        ZoneOffsetCache cache = CACHES.get(zone);
+        return cache != null ? cache : CACHES.computeIfAbsent(zone, ZoneOffsetCache::new);
+    }
+
+    /**
+     * @param epochSecond seconds since the epoch
+     * @return local wall clock seconds at that instant
+     */
+    public long toLocalEpochSecond(long epochSecond) {
+        if (epochSecond >= END_EPOCH_SECOND) {
+            return epochSecond + rules.getOffset(Instant.ofEpochSecond(epochSecond)).getTotalSeconds();
+        }
+        int index = lastAtOrBefore(transitionEpochSeconds, epochSecond);
+        return epochSecond + (index < 0 ? initialOffset : offsetsAfter[index]);
+    }
+
+    /**
+     * Resolves a local wall clock time, moving forward out of DST gaps and taking the earlier offset in overlaps
+     * @param localEpochSecond local wall clock seconds
+     * @return seconds since the epoch
+     */
+    public long toEpochSecond(long localEpochSecond) {
+        if (localEpochSecond >= END_LOCAL_SECOND) {
+            return LocalDateTime.ofEpochSecond(localEpochSecond, 0, ZoneOffset.UTC).atZone(zone).toEpochSecond();
+        }
+        int index = lastAtOrBefore(localThresholds, localEpochSecond);
+        return localEpochSecond - (index < 0 ? initialOffset : offsetsAfter[index]);
+    }
+
+    // Position of the last value at or before the key, -1 if there is none
+    private static int lastAtOrBefore(long[] values, long key) {
+        int low = 0;
+        int high = values.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (values[middle] <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+}
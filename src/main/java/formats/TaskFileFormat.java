@@ -0,0 +1,329 @@
+package formats;
+
+import calculation.DueDateStatus;
+import calculation.ZoneOffsetCache;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Row layouts for task files, read and written straight from and to bytes.
+ * Rows are single lines, the caller splits the input on line feeds and hands over one line at a time.
+ */
+public enum TaskFileFormat {
+
+    /**
+     * startDate,taskDuration rows with an optional header line, any further columns are ignored.
+     * Writes dueDate,status rows under a header.
+     */
+    CSV {
+        @Override
+        public boolean isHeader(ByteBuffer buffer, int from, int to) {
+            int start = skipWhitespace(buffer, from, to);
+            return start < to && !isDigit(buffer.get(start)) && buffer.get(start) != '"';
+        }
+
+        @Override
+        public boolean parseRow(ByteBuffer buffer, int from, int to, ZoneOffsetCache offsets,
+                                long[] startEpochSeconds, int[] taskDurations, int row) {
+            int comma = from;
+            while (comma < to && buffer.get(comma) != ',') {
+                comma++;
+            }
+            if (comma == to) {
+                return false;
+            }
+            int fieldEnd = comma + 1;
+            while (fieldEnd < to && buffer.get(fieldEnd) != ',') {
+                fieldEnd++;
+            }
+            long startEpochSecond = parseTimestamp(buffer, from, comma, offsets);
+            long taskDuration = parseInt(buffer, trimStart(buffer, comma + 1, fieldEnd), trimEnd(buffer, comma + 1, fieldEnd));
+            if (startEpochSecond == TimestampBytes.INVALID || taskDuration == INVALID_INT) {
+                return false;
+            }
+            startEpochSeconds[row] = startEpochSecond;
+            taskDurations[row] = (int) taskDuration;
+            return true;
+        }
+
+        @Override
+        public int writeHeader(byte[] out, int position) {
+            return write(out, position, CSV_HEADER);
+        }
+
+        @Override
+        public int writeRow(byte[] out, int position, long dueDate, byte status, ZoneOffsetCache offsets) {
+            if (status == DueDateStatus.OK) {
+                position = TimestampBytes.format(out, position, dueDate, offsets);
+            }
+            out[position++] = ',';
+            position = write(out, position, statusName(status));
+            out[position++] = '\n';
+            return position;
+        }
+    },
+
+    /**
+     * One JSON object per line with a startDate string and a taskDuration number, other fields are skipped.
+     * Writes objects with a dueDate, null when the task was rejected, and a status.
+     */
+    NDJSON {
+        @Override
+        public boolean isHeader(ByteBuffer buffer, int from, int to) {
+            return false;
+        }
+
+        @Override
+        public boolean parseRow(ByteBuffer buffer, int from, int to, ZoneOffsetCache offsets,
+                                long[] startEpochSeconds, int[] taskDurations, int row) {
+            long startEpochSecond = TimestampBytes.INVALID;
+            long taskDuration = INVALID_INT;
+            int i = skipWhitespace(buffer, from, to);
+            if (i == to || buffer.get(i) != '{') {
+                return false;
+            }
+            i++;
+            while (true) {
+                i = skipWhitespace(buffer, i, to);
+                if (i < to && buffer.get(i) == '}') {
+                    break;
+                }
+                if (i == to || buffer.get(i) != '"') {
+                    return false;
+                }
+                int keyEnd = skipString(buffer, i, to);
+                if (keyEnd < 0) {
+                    return false;
+                }
+                int valueStart = skipWhitespace(buffer, keyEnd, to);
+                if (valueStart == to || buffer.get(valueStart) != ':') {
+                    return false;
+                }
+                valueStart = skipWhitespace(buffer, valueStart + 1, to);
+                int valueEnd = skipValue(buffer, valueStart, to);
+                if (valueEnd < 0) {
+                    return false;
+                }
+                if (matches(buffer, i + 1, keyEnd - 1, START_DATE_KEY)) {
+                    if (buffer.get(valueStart) != '"') {
+                        return false;
+                    }
+                    startEpochSecond = TimestampBytes.parse(buffer, valueStart + 1, valueEnd - 1, offsets);
+                } else if (matches(buffer, i + 1, keyEnd - 1, TASK_DURATION_KEY)) {
+                    taskDuration = parseInt(buffer, valueStart, valueEnd);
+                }
+                i = skipWhitespace(buffer, valueEnd, to);
+                if (i < to && buffer.get(i) == ',') {
+                    i++;
+                }
+            }
+            if (startEpochSecond == TimestampBytes.INVALID || taskDuration == INVALID_INT) {
+                return false;
+            }
+            startEpochSeconds[row] = startEpochSecond;
+            taskDurations[row] = (int) taskDuration;
+            return true;
+        }
+
+        @Override
+        public int writeHeader(byte[] out, int position) {
+            return position;
+        }
+
+        @Override
+        public int writeRow(byte[] out, int position, long dueDate, byte status, ZoneOffsetCache offsets) {
+            position = write(out, position, JSON_DUE_DATE);
+            if (status == DueDateStatus.OK) {
+                out[position++] = '"';
+                position = TimestampBytes.format(out, position, dueDate, offsets);
+                out[position++] = '"';
+            } else {
+                position = write(out, position, JSON_NULL);
+            }
+            position = write(out, position, JSON_STATUS);
+            position = write(out, position, statusName(status));
+            out[position++] = '"';
+            out[position++] = '}';
+            out[position++] = '\n';
+            return position;
+        }
+    };
+
+    public static final byte INVALID_INPUT = -1; // status of rows that could not be parsed
+    public static final int MAX_ROW_LENGTH = 96; // longest row written by writeRow
+
+    private static final long INVALID_INT = Long.MIN_VALUE;
+    private static final byte[] CSV_HEADER = ascii("dueDate,status\n");
+    private static final byte[] START_DATE_KEY = ascii("startDate");
+    private static final byte[] TASK_DURATION_KEY = ascii("taskDuration");
+    private static final byte[] JSON_DUE_DATE = ascii("{\"dueDate\":");
+    private static final byte[] JSON_NULL = ascii("null");
+    private static final byte[] JSON_STATUS = ascii(",\"status\":\"");
+    private static final byte[][] STATUS_NAMES = {
+            ascii("OK"), ascii("INVALID_START"), ascii("INVALID_LENGTH"), ascii("INTERNAL_ERROR")};
+    private static final byte[] INVALID_INPUT_NAME = ascii("INVALID_INPUT");
+
+    /**
+     * @return true if the line is a header rather than a task, only asked of the first line
+     */
+    public abstract boolean isHeader(ByteBuffer buffer, int from, int to);
+
+    /**
+     * Parses one line into the batch arrays.
+     * @param buffer bytes to read, positions are absolute
+     * @param from first byte of the line
+     * @param to end of the line, exclusive of the line feed
+     * @param offsets zone for timestamps without an offset
+     * @param row index to write the start date and duration at
+     * @return false if the line is not a valid row, the arrays are left untouched
+     */
+    public abstract boolean parseRow(ByteBuffer buffer, int from, int to, ZoneOffsetCache offsets,
+                                     long[] startEpochSeconds, int[] taskDurations, int row);
+
+    /**
+     * @return the position after the header, unchanged if the format has none
+     */
+    public abstract int writeHeader(byte[] out, int position);
+
+    /**
+     * Writes the result of one row, followed by a line feed.
+     * @param out destination, needs at least {@link #MAX_ROW_LENGTH} bytes free from the position
+     * @param dueDate seconds since the epoch, ignored unless the status is OK
+     * @param status a {@link DueDateStatus} code or {@link #INVALID_INPUT}
+     * @param offsets zone to write the due date in
+     * @return the position after the last byte written
+     */
+    public abstract int writeRow(byte[] out, int position, long dueDate, byte status, ZoneOffsetCache offsets);
+
+    // Quoted CSV fields are unwrapped, surrounding blanks are ignored
+    private static long parseTimestamp(ByteBuffer buffer, int from, int to, ZoneOffsetCache offsets) {
+        int start = trimStart(buffer, from, to);
+        int end = trimEnd(buffer, from, to);
+        if (end - start >= 2 && buffer.get(start) == '"' && buffer.get(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        return TimestampBytes.parse(buffer, start, end, offsets);
+    }
+
+    // Parses a whole field as an int, returns INVALID_INT unless every byte is part of the number
+    private static long parseInt(ByteBuffer buffer, int from, int to) {
+        if (from == to) {
+            return INVALID_INT;
+        }
+        boolean negative = buffer.get(from) == '-';
+        int i = negative ? from + 1 : from;
+        if (i == to || to - i > 10) {
+            return INVALID_INT;
+        }
+        long value = 0;
+        for (; i < to; i++) {
+            byte b = buffer.get(i);
+            if (!isDigit(b)) {
+                return INVALID_INT;
+            }
+            value = value * 10 + (b - '0');
+        }
+        value = negative ? -value : value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? INVALID_INT : value;
+    }
+
+    private static int trimStart(ByteBuffer buffer, int from, int to) {
+        return skipWhitespace(buffer, from, to);
+    }
+
+    private static int trimEnd(ByteBuffer buffer, int from, int to) {
+        while (to > from && isWhitespace(buffer.get(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static int skipWhitespace(ByteBuffer buffer, int from, int to) {
+        while (from < to && isWhitespace(buffer.get(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    // Returns the position after the closing quote of the string starting at from, -1 if unterminated
+    private static int skipString(ByteBuffer buffer, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the position after a JSON value, nested objects and arrays are skipped whole
+    private static int skipValue(ByteBuffer buffer, int from, int to) {
+        if (from == to) {
+            return -1;
+        }
+        byte first = buffer.get(from);
+        if (first == '"') {
+            return skipString(buffer, from, to);
+        }
+        if (first == '{' || first == '[') {
+            int depth = 0;
+            for (int i = from; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    i = skipString(buffer, i, to);
+                    if (i < 0) {
+                        return -1;
+                    }
+                    i--;
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        int i = from;
+        while (i < to && buffer.get(i) != ',' && buffer.get(i) != '}' && !isWhitespace(buffer.get(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean matches(ByteBuffer buffer, int from, int to, byte[] expected) {
+        if (to - from != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(from + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] statusName(byte status) {
+        return status >= 0 && status < STATUS_NAMES.length ? STATUS_NAMES[status] : INVALID_INPUT_NAME;
+    }
+
+    private static int write(byte[] out, int position, byte[] bytes) {
+        System.arraycopy(bytes, 0, out, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static byte[] ascii(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
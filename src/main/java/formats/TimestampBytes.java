@@ -0,0 +1,230 @@
+package formats;
+
+import calculation.DueDateCalculator;
+import calculation.ZoneOffsetCache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes timestamps as ASCII bytes without going through Strings or java.time objects.
+ * Accepts yyyy-MM-ddTHH:mm:ss and MM/dd/yyyy HH:mm:ss, optionally followed by fractional seconds (dropped)
+ * and a Z or +HH:MM offset. Timestamps without an offset are read as wall clock time in the given zone.
+ * Zone abbreviations such as EST are ambiguous and are not accepted.
+ */
+public final class TimestampBytes {
+
+    public static final long INVALID = Long.MIN_VALUE; // returned when the bytes are not a timestamp
+    public static final int MAX_FORMATTED_LENGTH = 40; // longest output of format, including extended years
+
+    private static final int DAYS_0000_TO_1970 = 719468; // days from 0000-03-01 to 1970-01-01
+    private static final int DAYS_PER_ERA = 146097; // days in 400 years
+    private static final int MAX_OFFSET_SECONDS = 18 * 3600;
+
+    private TimestampBytes() {
+    }
+
+    /**
+     * @param buffer bytes to read, positions are absolute
+     * @param from first byte of the timestamp
+     * @param to end of the timestamp, exclusive
+     * @param offsets used when the timestamp has no offset of its own
+     * @return seconds since the epoch, or {@link #INVALID}
+     */
+    public static long parse(ByteBuffer buffer, int from, int to, ZoneOffsetCache offsets) {
+        int year, month, day, i;
+        if (to - from < 19) {
+            return INVALID;
+        }
+        if (buffer.get(from + 2) == '/') {
+            month = digits(buffer, from, 2);
+            day = digits(buffer, from + 3, 2);
+            year = digits(buffer, from + 6, 4);
+            if (buffer.get(from + 5) != '/') {
+                return INVALID;
+            }
+        } else {
+            year = digits(buffer, from, 4);
+            month = digits(buffer, from + 5, 2);
+            day = digits(buffer, from + 8, 2);
+            if (buffer.get(from + 4) != '-' || buffer.get(from + 7) != '-') {
+                return INVALID;
+            }
+        }
+        i = from + 10;
+        byte separator = buffer.get(i);
+        if (separator != 'T' && separator != ' ') {
+            return INVALID;
+        }
+        int hour = digits(buffer, i + 1, 2);
+        int minute = digits(buffer, i + 4, 2);
+        int second = digits(buffer, i + 7, 2);
+        if (buffer.get(i + 3) != ':' || buffer.get(i + 6) != ':') {
+            return INVALID;
+        }
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return INVALID;
+        }
+        i += 9;
+
+        // Fractional seconds are dropped, due dates are calculated to the second
+        if (i < to && buffer.get(i) == '.') {
+            i++;
+            while (i < to && isDigit(buffer.get(i))) {
+                i++;
+            }
+        }
+
+        long local = epochDay(year, month, day) * DueDateCalculator.SECONDS_PER_DAY + hour * 3600L + minute * 60L + second;
+        if (i == to) {
+            return offsets.toEpochSecond(local);
+        }
+        byte sign = buffer.get(i);
+        if (sign == 'Z' && i + 1 == to) {
+            return local;
+        }
+        if (sign != '+' && sign != '-') {
+            return INVALID;
+        }
+        int offset = parseOffset(buffer, i + 1, to);
+        if (offset < 0) {
+            return INVALID;
+        }
+        return sign == '+' ? local - offset : local + offset;
+    }
+
+    /**
+     * Writes a timestamp as yyyy-MM-ddTHH:mm:ss followed by Z or the offset in the zone at that instant.
+     * @param out destination, needs at least {@link #MAX_FORMATTED_LENGTH} bytes free from the position
+     * @param position where to start writing
+     * @param epochSecond seconds since the epoch
+     * @param offsets zone to write the wall clock time in
+     * @return the position after the last byte written
+     */
+    public static int format(byte[] out, int position, long epochSecond, ZoneOffsetCache offsets) {
+        long local = offsets.toLocalEpochSecond(epochSecond);
+        int offset = (int) (local - epochSecond);
+        long epochDay = Math.floorDiv(local, DueDateCalculator.SECONDS_PER_DAY);
+        int secondOfDay = Math.floorMod(local, DueDateCalculator.SECONDS_PER_DAY);
+
+        // Civil date from the day count, years start in March so the leap day comes last
+        long shifted = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(shifted, DAYS_PER_ERA);
+        int dayOfEra = (int) (shifted - era * DAYS_PER_ERA);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int monthIndex = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * monthIndex + 2) / 5 + 1;
+        int month = monthIndex < 10 ? monthIndex + 3 : monthIndex - 9;
+        long year = era * 400 + yearOfEra + (month <= 2 ? 1 : 0);
+
+        if (year >= 0 && year <= 9999) {
+            position = writeDigits(out, position, (int) year, 4);
+        } else {
+            out[position++] = (byte) (year < 0 ? '-' : '+');
+            position = writeLong(out, position, Math.abs(year));
+        }
+        out[position++] = '-';
+        position = writeDigits(out, position, month, 2);
+        out[position++] = '-';
+        position = writeDigits(out, position, day, 2);
+        out[position++] = 'T';
+        position = writeDigits(out, position, secondOfDay / 3600, 2);
+        out[position++] = ':';
+        position = writeDigits(out, position, secondOfDay / 60 % 60, 2);
+        out[position++] = ':';
+        position = writeDigits(out, position, secondOfDay % 60, 2);
+
+        if (offset == 0) {
+            out[position++] = 'Z';
+            return position;
+        }
+        out[position++] = (byte) (offset < 0 ? '-' : '+');
+        int absOffset = Math.abs(offset);
+        position = writeDigits(out, position, absOffset / 3600, 2);
+        out[position++] = ':';
+        position = writeDigits(out, position, absOffset / 60 % 60, 2);
+        if (absOffset % 60 != 0) {
+            out[position++] = ':';
+            position = writeDigits(out, position, absOffset % 60, 2);
+        }
+        return position;
+    }
+
+    /**
+     * @return days since 1970-01-01 of a valid proleptic Gregorian date
+     */
+    static long epochDay(int year, int month, int day) {
+        int marchYear = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(marchYear, 400);
+        int yearOfEra = marchYear - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return (long) era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    // Parses HH:MM, HHMM or HH, returns -1 when malformed
+    private static int parseOffset(ByteBuffer buffer, int from, int to) {
+        int hours = digits(buffer, from, 2);
+        int minutes;
+        if (to - from == 2) {
+            minutes = 0;
+        } else if (to - from == 4) {
+            minutes = digits(buffer, from + 2, 2);
+        } else if (to - from == 5 && buffer.get(from + 2) == ':') {
+            minutes = digits(buffer, from + 3, 2);
+        } else {
+            return -1;
+        }
+        if (hours < 0 || minutes < 0 || minutes > 59) {
+            return -1;
+        }
+        int offset = hours * 3600 + minutes * 60;
+        return offset <= MAX_OFFSET_SECONDS ? offset : -1;
+    }
+
+    // Reads a fixed number of digits, returns -1 if any byte is not a digit
+    private static int digits(ByteBuffer buffer, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            byte b = buffer.get(i);
+            if (!isDigit(b)) {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static int writeDigits(byte[] out, int position, int value, int count) {
+        for (int i = position + count - 1; i >= position; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + count;
+    }
+
+    private static int writeLong(byte[] out, int position, long value) {
+        int count = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            count++;
+        }
+        for (int i = position + count - 1; i >= position; i--) {
+            out[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return position + count;
+    }
+}
@@ -0,0 +1,161 @@
+package holidays;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Non working days stored as one packed bitset per year, 48 bytes a year.
+ * Calendars can be written to a binary file and mapped back in without copying.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class HolidayCalendar {
+
+    /** A calendar without any holidays */
+    public static final HolidayCalendar EMPTY = new HolidayCalendar(0, 0, LongBuffer.allocate(0));
+
+    private static final int MAGIC = 0x484F4C49; // HOLI
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16; // magic, version, first year, year count
+    private static final int WORDS_PER_YEAR = 6; // 366 days fit in 6 longs
+    private static final int MIN_YEAR = 1; // years a calendar file may cover
+    private static final int MAX_YEAR = 9999;
+
+    private final int firstYear;
+    private final int yearCount;
+    private final long[] yearStartEpochDays;
+    private final LongBuffer words;
+
+    private HolidayCalendar(int firstYear, int yearCount, LongBuffer words) {
+        this.firstYear = firstYear;
+        this.yearCount = yearCount;
+        this.words = words;
+        this.yearStartEpochDays = new long[yearCount + 1];
+        for (int i = 0; i <= yearCount; i++) {
+            yearStartEpochDays[i] = LocalDate.of(firstYear + i, 1, 1).toEpochDay();
+        }
+    }
+
+    /**
+     * Creates a calendar covering the years of the given holidays
+     * @param holidays the non working days
+     * @return a calendar containing the holidays
+     */
+    public static HolidayCalendar of(Collection<LocalDate> holidays) {
+        if (holidays.isEmpty()) {
+            return EMPTY;
+        }
+        int firstYear = holidays.stream().mapToInt(LocalDate::getYear).min().getAsInt();
+        int lastYear = holidays.stream().mapToInt(LocalDate::getYear).max().getAsInt();
+        long[] words = new long[(lastYear - firstYear + 1) * WORDS_PER_YEAR];
+        for (LocalDate holiday : holidays) {
+            int dayOfYear = holiday.getDayOfYear() - 1;
+            words[(holiday.getYear() - firstYear) * WORDS_PER_YEAR + (dayOfYear >>> 6)] |= 1L << dayOfYear;
+        }
+        return new HolidayCalendar(firstYear, lastYear - firstYear + 1, LongBuffer.wrap(words));
+    }
+
+    /**
+     * Maps a calendar file written by {@link #write(Path)}.
+     * The bitsets are read straight from the mapping, nothing is copied onto the heap.
+     * @param file the calendar file
+     * @return the mapped calendar
+     * @throws IOException if the file can not be read or is not a calendar file
+     */
+    public static HolidayCalendar load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > HEADER_BYTES + (long) (MAX_YEAR - MIN_YEAR + 1) * WORDS_PER_YEAR * Long.BYTES) {
+                throw new IOException(String.format("Holiday calendar file is too large: %s, %d bytes", file, size));
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(String.format("Not a holiday calendar file: %s", file));
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException(String.format("Unsupported holiday calendar version %d in %s", buffer.getInt(4), file));
+            }
+            int firstYear = buffer.getInt(8);
+            int yearCount = buffer.getInt(12);
+            if (yearCount == 0) {
+                return EMPTY;
+            }
+            if (yearCount < 0 || firstYear < MIN_YEAR || firstYear > MAX_YEAR - yearCount + 1) {
+                throw new IOException(String.format("Corrupt holiday calendar file: %s, %d years from %d are outside of %d - %d",
+                        file, yearCount, firstYear, MIN_YEAR, MAX_YEAR));
+            }
+            long expected = HEADER_BYTES + (long) yearCount * WORDS_PER_YEAR * Long.BYTES;
+            if (size != expected) {
+                throw new IOException(String.format("Truncated holiday calendar file: %s, %d bytes where %d years need %d",
+                        file, size, yearCount, expected));
+            }
+            LongBuffer words = buffer.position(HEADER_BYTES).slice().asLongBuffer();
+            return new HolidayCalendar(firstYear, yearCount, words);
+        }
+    }
+
+    /**
+     * Writes the calendar in the binary format read by {@link #load(Path)}
+     * @param file the file to create or replace
+     * @throws IOException if the file can not be written
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + yearCount * WORDS_PER_YEAR * Long.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(firstYear).putInt(yearCount);
+        for (int i = 0; i < yearCount * WORDS_PER_YEAR; i++) {
+            buffer.putLong(words.get(i));
+        }
+        buffer.flip();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * @param epochDay local day since 1970-01-01
+     * @return true if the day is a holiday
+     */
+    public boolean isHoliday(long epochDay) {
+        if (yearCount == 0 || epochDay < yearStartEpochDays[0] || epochDay >= yearStartEpochDays[yearCount]) {
+            return false;
+        }
+        int yearIndex = (int) Math.min((epochDay - yearStartEpochDays[0]) * 400 / 146097, yearCount - 1); // 146097 days per 400 years
+        while (yearStartEpochDays[yearIndex + 1] <= epochDay) {
+            yearIndex++;
+        }
+        while (yearStartEpochDays[yearIndex] > epochDay) {
+            yearIndex--;
+        }
+        int dayOfYear = (int) (epochDay - yearStartEpochDays[yearIndex]);
+        return (words.get(yearIndex * WORDS_PER_YEAR + (dayOfYear >>> 6)) & (1L << dayOfYear)) != 0;
+    }
+
+    /**
+     * @return the first year holding holidays
+     */
+    public int getFirstYear() {
+        return firstYear;
+    }
+
+    /**
+     * @return the last year holding holidays
+     */
+    public int getLastYear() {
+        return firstYear + yearCount - 1;
+    }
+
+    /**
+     * @return true if the calendar has no holidays at all
+     */
+    public boolean isEmpty() {
+        return yearCount == 0;
+    }
+}
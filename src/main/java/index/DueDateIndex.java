@@ -0,0 +1,281 @@
+package index;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the due dates of tasks per time zone, answering how many tasks come due in a range without recalculating them.
+ * Tasks are keyed by an id chosen by the caller. Putting a task again moves it to its new due date, so recalculating
+ * or retrying a task never counts it twice, and removing it takes it out whatever it was last put with.
+ * Due dates are grouped into fixed width time buckets, each holding its distinct due dates sorted in a primitive array
+ * alongside how many tasks are due at each and a total for the bucket.
+ * A range query only looks inside the buckets at its two ends and adds up the totals of the buckets in between,
+ * so it costs the number of buckets spanned rather than the number of tasks.
+ * Each zone is locked on its own, threads only contend when they touch the same zone or the same task.
+ */
+public class DueDateIndex {
+
+    private final long bucketSeconds;
+    private final ConcurrentHashMap<ZoneId, ZoneBuckets> zones = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Entry> tasks = new ConcurrentHashMap<>();
+
+    /**
+     * Creates an empty index
+     * @param bucketWidth span of time grouped into one bucket, at least a second. An hour suits ranges of days.
+     */
+    public DueDateIndex(Duration bucketWidth) {
+        if (bucketWidth.getSeconds() < 1) {
+            throw new IllegalArgumentException(String.format("Invalid bucket width: %s. Value must be at least one second.", bucketWidth));
+        }
+        this.bucketSeconds = bucketWidth.getSeconds();
+    }
+
+    /**
+     * Adds a task, or moves it if it is already indexed
+     * @param taskId identifies the task, chosen by the caller
+     * @param zone time zone the task was calculated in
+     * @param dueEpochSecond due date in seconds since the epoch
+     * @return false if the task was already indexed
+     */
+    public boolean put(long taskId, ZoneId zone, long dueEpochSecond) {
+        boolean[] added = new boolean[1];
+        // Replacing under the task's map entry keeps racing puts and removes of one task consistent
+        tasks.compute(taskId, (id, previous) -> {
+            if (previous != null && previous.dueEpochSecond == dueEpochSecond && previous.zone.equals(zone)) {
+                return previous;
+            }
+            if (previous == null) {
+                added[0] = true;
+            } else {
+                removeDueDate(previous.zone, previous.dueEpochSecond);
+            }
+            ZoneBuckets buckets = zones.computeIfAbsent(zone, z -> new ZoneBuckets());
+            synchronized (buckets) {
+                buckets.add(dueEpochSecond);
+            }
+            return new Entry(zone, dueEpochSecond);
+        });
+        return added[0];
+    }
+
+    /**
+     * Removes a task, for example once it is done
+     * @param taskId identifies the task, as given to {@link #put(long, ZoneId, long)}
+     * @return false if the task was not indexed
+     */
+    public boolean remove(long taskId) {
+        boolean[] removed = new boolean[1];
+        tasks.computeIfPresent(taskId, (id, previous) -> {
+            removeDueDate(previous.zone, previous.dueEpochSecond);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    /**
+     * @param taskId identifies the task, as given to {@link #put(long, ZoneId, long)}
+     * @return true if the task is indexed
+     */
+    public boolean contains(long taskId) {
+        return tasks.containsKey(taskId);
+    }
+
+    /**
+     * @param zone time zone the tasks were calculated in
+     * @param fromEpochSecond start of the range in seconds since the epoch, inclusive
+     * @param toEpochSecond end of the range in seconds since the epoch, inclusive
+     * @return number of tasks due in the range
+     */
+    public long count(ZoneId zone, long fromEpochSecond, long toEpochSecond) {
+        ZoneBuckets buckets = zones.get(zone);
+        if (buckets == null || fromEpochSecond > toEpochSecond) {
+            return 0;
+        }
+        synchronized (buckets) {
+            return buckets.count(fromEpochSecond, toEpochSecond);
+        }
+    }
+
+    /**
+     * @param fromEpochSecond start of the range in seconds since the epoch, inclusive
+     * @param toEpochSecond end of the range in seconds since the epoch, inclusive
+     * @return number of tasks due in the range for every zone that has any
+     */
+    public Map<ZoneId, Long> countByZone(long fromEpochSecond, long toEpochSecond) {
+        Map<ZoneId, Long> counts = new HashMap<>();
+        for (ZoneId zone : zones.keySet()) {
+            long count = count(zone, fromEpochSecond, toEpochSecond);
+            if (count > 0) {
+                counts.put(zone, count);
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * @param zone time zone the tasks were calculated in
+     * @param fromEpochSecond start of the range in seconds since the epoch, inclusive
+     * @param toEpochSecond end of the range in seconds since the epoch, inclusive
+     * @return a copy of the due dates in the range in ascending order, repeated once for every task due at the same second
+     */
+    public long[] getDueDates(ZoneId zone, long fromEpochSecond, long toEpochSecond) {
+        ZoneBuckets buckets = zones.get(zone);
+        if (buckets == null || fromEpochSecond > toEpochSecond) {
+            return new long[0];
+        }
+        synchronized (buckets) {
+            return buckets.dueDates(fromEpochSecond, toEpochSecond);
+        }
+    }
+
+    /**
+     * @return number of tasks indexed
+     */
+    public long size() {
+        return tasks.size();
+    }
+
+    /**
+     * Removes every task
+     */
+    public void clear() {
+        for (Long taskId : tasks.keySet()) {
+            remove(taskId);
+        }
+    }
+
+    private void removeDueDate(ZoneId zone, long dueEpochSecond) {
+        ZoneBuckets buckets = zones.get(zone);
+        synchronized (buckets) {
+            buckets.remove(dueEpochSecond);
+        }
+    }
+
+    private long bucketOf(long epochSecond) {
+        return Math.floorDiv(epochSecond, bucketSeconds);
+    }
+
+    // Buckets of one zone, only touched while holding its lock
+    private class ZoneBuckets {
+
+        private final TreeMap<Long, Bucket> buckets = new TreeMap<>();
+
+        void add(long dueEpochSecond) {
+            buckets.computeIfAbsent(bucketOf(dueEpochSecond), b -> new Bucket()).add(dueEpochSecond);
+        }
+
+        // Only called for due dates of indexed tasks, which are always present
+        void remove(long dueEpochSecond) {
+            long key = bucketOf(dueEpochSecond);
+            Bucket bucket = buckets.get(key);
+            bucket.remove(dueEpochSecond);
+            if (bucket.total == 0) {
+                buckets.remove(key);
+            }
+        }
+
+        long count(long from, long to) {
+            long firstKey = bucketOf(from);
+            long lastKey = bucketOf(to);
+            Bucket first = buckets.get(firstKey);
+            if (firstKey == lastKey) {
+                return first == null ? 0 : first.count(from, to);
+            }
+            long count = first == null ? 0 : first.count(from, to);
+            // Buckets wholly inside the range only need their totals
+            for (Bucket bucket : buckets.subMap(firstKey, false, lastKey, false).values()) {
+                count += bucket.total;
+            }
+            Bucket last = buckets.get(lastKey);
+            return last == null ? count : count + last.count(from, to);
+        }
+
+        long[] dueDates(long from, long to) {
+            NavigableMap<Long, Bucket> spanned = buckets.subMap(bucketOf(from), true, bucketOf(to), true);
+            long[] dueDates = new long[Math.toIntExact(count(from, to))];
+            int position = 0;
+            for (Bucket bucket : spanned.values()) {
+                position = bucket.copy(from, to, dueDates, position);
+            }
+            return dueDates;
+        }
+    }
+
+    private static final class Entry {
+
+        private final ZoneId zone;
+        private final long dueEpochSecond;
+
+        Entry(ZoneId zone, long dueEpochSecond) {
+            this.zone = zone;
+            this.dueEpochSecond = dueEpochSecond;
+        }
+    }
+
+    // Distinct due dates of one bucket in ascending order, with the number of tasks due at each
+    private static class Bucket {
+
+        private long[] seconds = new long[4];
+        private int[] counts = new int[4];
+        private int distinct;
+        private long total;
+
+        void add(long dueEpochSecond) {
+            int position = Arrays.binarySearch(seconds, 0, distinct, dueEpochSecond);
+            if (position >= 0) {
+                counts[position]++;
+            } else {
+                position = -position - 1;
+                if (distinct == seconds.length) {
+                    seconds = Arrays.copyOf(seconds, distinct * 2);
+                    counts = Arrays.copyOf(counts, distinct * 2);
+                }
+                System.arraycopy(seconds, position, seconds, position + 1, distinct - position);
+                System.arraycopy(counts, position, counts, position + 1, distinct - position);
+                seconds[position] = dueEpochSecond;
+                counts[position] = 1;
+                distinct++;
+            }
+            total++;
+        }
+
+        void remove(long dueEpochSecond) {
+            int position = Arrays.binarySearch(seconds, 0, distinct, dueEpochSecond);
+            if (--counts[position] == 0) {
+                System.arraycopy(seconds, position + 1, seconds, position, distinct - position - 1);
+                System.arraycopy(counts, position + 1, counts, position, distinct - position - 1);
+                distinct--;
+            }
+            total--;
+        }
+
+        long count(long from, long to) {
+            long count = 0;
+            for (int i = lowerBound(from); i < distinct && seconds[i] <= to; i++) {
+                count += counts[i];
+            }
+            return count;
+        }
+
+        int copy(long from, long to, long[] target, int position) {
+            for (int i = lowerBound(from); i < distinct && seconds[i] <= to; i++) {
+                Arrays.fill(target, position, position + counts[i], seconds[i]);
+                position += counts[i];
+            }
+            return position;
+        }
+
+        // First position holding a due date not before the given second
+        private int lowerBound(long epochSecond) {
+            int position = Arrays.binarySearch(seconds, 0, distinct, epochSecond);
+            return position >= 0 ? position : -position - 1;
+        }
+    }
+}
@@ -1,17 +1,28 @@
 package logging;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 
 public class MockLogger extends Logger {
 
-    private List<LogRecord> logEntries;
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    // Ring buffer, record n goes in slot n % capacity once a writer has claimed sequence n.
+    // Each slot holds the record together with its sequence so a reader can never pair one with the other's.
+    private final AtomicReferenceArray<Entry> logEntries;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final int mask;
 
     /**
      *
      * Mock logger for capturing and validating log messages.
+     * Safe to log to from any number of threads without locking. Keeps the most recent 65536 records.
+     * The sequence number of each record is set to its position in this logger, starting from zero.
      *
      * @param name               A name for the logger.  This should
      *                           be a dot-separated name and should normally
@@ -20,17 +31,69 @@ public class MockLogger extends Logger {
      *                           or javax.swing.  It may be null for anonymous Loggers.
      */
     public MockLogger(String name) {
+        this(name, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Mock logger for capturing and validating log messages.
+     * @param name     A name for the logger, see {@link #MockLogger(String)}
+     * @param capacity Most recent records to keep, rounded up to a power of two. Older ones are overwritten but still counted.
+     */
+    public MockLogger(String name, int capacity) {
         super(name, null);
-        logEntries = new ArrayList<>();
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException(String.format("Invalid capacity: %d. Value must be between 1 and %d.", capacity, 1 << 30));
+        }
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        logEntries = new AtomicReferenceArray<>(size);
+        mask = size - 1;
     }
 
     @Override
     public void log(LogRecord record) {
-        logEntries.add(record);
+        long sequence = nextSequence.getAndIncrement();
+        record.setSequenceNumber(sequence);
+        int slot = (int) (sequence & mask);
+        Entry entry = new Entry(sequence, record);
+        // A writer that stalled until the buffer wrapped past it must not overwrite the newer record
+        Entry current = logEntries.get(slot);
+        while ((current == null || current.sequence < sequence) && !logEntries.compareAndSet(slot, current, entry)) {
+            current = logEntries.get(slot);
+        }
     }
 
+    /**
+     * @return a copy of the retained records, oldest first. Records still being written when the copy is taken are left out.
+     */
     public List<LogRecord> getLogEntries() {
-        return logEntries;
+        long end = nextSequence.get();
+        long start = Math.max(0, end - logEntries.length());
+        List<LogRecord> entries = new ArrayList<>((int) (end - start));
+        for (long sequence = start; sequence < end; sequence++) {
+            Entry entry = logEntries.get((int) (sequence & mask));
+            if (entry != null && entry.sequence == sequence) {
+                entries.add(entry.record);
+            }
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @return number of records logged since creation, including any that have been overwritten
+     */
+    public long getLogCount() {
+        return nextSequence.get();
+    }
+
+    private static final class Entry {
+
+        private final long sequence;
+        private final LogRecord record;
+
+        Entry(long sequence, LogRecord record) {
+            this.sequence = sequence;
+            this.record = record;
+        }
     }
 
 }
@@ -0,0 +1,74 @@
+package metrics;
+
+/**
+ * Point in time copy of {@link TaskHandlerMetrics}.
+ */
+public class MetricsSnapshot {
+
+    private final long successCount;
+    private final long invalidDateCount;
+    private final long invalidLengthCount;
+    private final long internalErrorCount;
+    private final long[] latencies;
+
+    MetricsSnapshot(long successCount, long invalidDateCount, long invalidLengthCount, long internalErrorCount, long[] latencies) {
+        this.successCount = successCount;
+        this.invalidDateCount = invalidDateCount;
+        this.invalidLengthCount = invalidLengthCount;
+        this.internalErrorCount = internalErrorCount;
+        this.latencies = latencies;
+    }
+
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    public long getInvalidDateCount() {
+        return invalidDateCount;
+    }
+
+    public long getInvalidLengthCount() {
+        return invalidLengthCount;
+    }
+
+    public long getInternalErrorCount() {
+        return internalErrorCount;
+    }
+
+    /**
+     * @param durationBucket see {@link TaskHandlerMetrics#durationBucket(int)}
+     * @param latencyBucket see {@link TaskHandlerMetrics#latencyBucket(long)}
+     * @return number of timed calculations in the bucket
+     */
+    public long getLatencyCount(int durationBucket, int latencyBucket) {
+        return latencies[durationBucket * TaskHandlerMetrics.LATENCY_BUCKETS + latencyBucket];
+    }
+
+    /**
+     * Estimates a latency percentile for one duration bucket
+     * @param durationBucket see {@link TaskHandlerMetrics#durationBucket(int)}
+     * @param percentile between 0 and 100
+     * @return upper bound in nanoseconds of the latency bucket holding the percentile, zero if nothing was timed
+     */
+    public long getLatencyPercentile(int durationBucket, double percentile) {
+        long total = 0;
+        for (int latencyBucket = 0; latencyBucket < TaskHandlerMetrics.LATENCY_BUCKETS; latencyBucket++) {
+            total += getLatencyCount(durationBucket, latencyBucket);
+        }
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int latencyBucket = 0; latencyBucket < TaskHandlerMetrics.LATENCY_BUCKETS; latencyBucket++) {
+            seen += getLatencyCount(durationBucket, latencyBucket);
+            if (seen >= rank && seen > 0) {
+                return (1L << latencyBucket) - 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("success=%d invalidDate=%d invalidLength=%d internalError=%d",
+                successCount, invalidDateCount, invalidLengthCount, internalErrorCount);
+    }
+}
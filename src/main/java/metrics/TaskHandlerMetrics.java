@@ -0,0 +1,78 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Outcome counters and latency histograms for due date calculations.
+ * Latencies are bucketed by task duration (powers of two of hours) and by latency (powers of two of nanoseconds).
+ * All recording is lock free and safe to call from any number of threads.
+ */
+public class TaskHandlerMetrics {
+
+    public static final int DURATION_BUCKETS = 32; // bucket b holds durations of 2^(b-1) to 2^b - 1 hours, bucket 0 holds invalid lengths
+    public static final int LATENCY_BUCKETS = 48; // bucket b holds latencies of 2^(b-1) to 2^b - 1 nanoseconds
+
+    private final LongAdder successCount = new LongAdder();
+    private final LongAdder invalidDateCount = new LongAdder();
+    private final LongAdder invalidLengthCount = new LongAdder();
+    private final LongAdder internalErrorCount = new LongAdder();
+    private final AtomicLongArray latencies = new AtomicLongArray(DURATION_BUCKETS * LATENCY_BUCKETS);
+
+    public void recordSuccess(int taskDuration, long latencyNanos) {
+        successCount.increment();
+        latencies.incrementAndGet(durationBucket(taskDuration) * LATENCY_BUCKETS + latencyBucket(latencyNanos));
+    }
+
+    /**
+     * Records several successful calculations at once, such as the valid rows of a batch, without latencies
+     * @param count number of successful calculations
+     */
+    public void recordSuccesses(long count) {
+        successCount.add(count);
+    }
+
+    public void recordInvalidDates(long count) {
+        invalidDateCount.add(count);
+    }
+
+    public void recordInvalidLengths(long count) {
+        invalidLengthCount.add(count);
+    }
+
+    public void recordInternalErrors(long count) {
+        internalErrorCount.add(count);
+    }
+
+    /**
+     * @return the current counts, recording carries on while the snapshot is taken
+     */
+    public MetricsSnapshot snapshot() {
+        long[] histogram = new long[latencies.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencies.get(i);
+        }
+        return new MetricsSnapshot(successCount.sum(), invalidDateCount.sum(), invalidLengthCount.sum(), internalErrorCount.sum(), histogram);
+    }
+
+    /**
+     * Takes a snapshot and starts counting again from zero, for scrapers that want deltas
+     * @return the counts since the last reset
+     */
+    public MetricsSnapshot snapshotAndReset() {
+        long[] histogram = new long[latencies.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = latencies.getAndSet(i, 0);
+        }
+        return new MetricsSnapshot(successCount.sumThenReset(), invalidDateCount.sumThenReset(),
+                invalidLengthCount.sumThenReset(), internalErrorCount.sumThenReset(), histogram);
+    }
+
+    public static int durationBucket(int taskDuration) {
+        return taskDuration <= 0 ? 0 : 32 - Integer.numberOfLeadingZeros(taskDuration);
+    }
+
+    public static int latencyBucket(long latencyNanos) {
+        return Math.min(64 - Long.numberOfLeadingZeros(Math.max(latencyNanos, 0)), LATENCY_BUCKETS - 1);
+    }
+}
@@ -0,0 +1,199 @@
+package schedule;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.format.TextStyle;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Working hours for each day of the week, with minute granularity.
+ * Built once through {@link Builder}, after which per day and per week working seconds are precomputed.
+ * Days are indexed 0 = Monday ... 6 = Sunday, matching {@link DayOfWeek#ordinal()}.
+ * Instances are immutable and safe to share between threads.
+ */
+public final class WorkSchedule {
+
+    /** 9am - 5pm Mon-Fri */
+    public static final WorkSchedule STANDARD = builder()
+            .workdays(DayOfWeek.MONDAY, DayOfWeek.FRIDAY, LocalTime.of(9, 0), LocalTime.of(17, 0))
+            .build();
+
+    private static final int DAYS_PER_WEEK = 7;
+
+    private final int[] startSeconds;
+    private final int[] endSeconds;
+    private final int[] secondsBeforeDay; // running total through the week, the last entry is the week total
+    private final int hash; // cache keys hash the schedule on every lookup
+
+    private WorkSchedule(int[] startSeconds, int[] endSeconds) {
+        this.startSeconds = startSeconds;
+        this.endSeconds = endSeconds;
+        this.secondsBeforeDay = new int[DAYS_PER_WEEK + 1];
+        for (int day = 0; day < DAYS_PER_WEEK; day++) {
+            secondsBeforeDay[day + 1] = secondsBeforeDay[day] + (endSeconds[day] - startSeconds[day]);
+        }
+        this.hash = 31 * Arrays.hashCode(startSeconds) + Arrays.hashCode(endSeconds);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param dayOfWeek 0 = Monday ... 6 = Sunday
+     * @return second of the day work starts, meaningless on days without working time
+     */
+    public int getStartSecond(int dayOfWeek) {
+        return startSeconds[dayOfWeek];
+    }
+
+    /**
+     * @param dayOfWeek 0 = Monday ... 6 = Sunday
+     * @return second of the day work ends, meaningless on days without working time
+     */
+    public int getEndSecond(int dayOfWeek) {
+        return endSeconds[dayOfWeek];
+    }
+
+    /**
+     * @param dayOfWeek 0 = Monday ... 6 = Sunday
+     * @return working seconds on the day, zero for days off
+     */
+    public int getWorkingSeconds(int dayOfWeek) {
+        return secondsBeforeDay[dayOfWeek + 1] - secondsBeforeDay[dayOfWeek];
+    }
+
+    /**
+     * @param dayOfWeek 0 = Monday ... 6 = Sunday
+     * @return working seconds in the week before the day starts
+     */
+    public int getWorkingSecondsBefore(int dayOfWeek) {
+        return secondsBeforeDay[dayOfWeek];
+    }
+
+    /**
+     * @return working seconds in a whole week
+     */
+    public int getWeekSeconds() {
+        return secondsBeforeDay[DAYS_PER_WEEK];
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof WorkSchedule schedule)) {
+            return false;
+        }
+        return Arrays.equals(startSeconds, schedule.startSeconds) && Arrays.equals(endSeconds, schedule.endSeconds);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * @return the working hours grouped by runs of days, for example "Mon-Fri 09:00-17:00"
+     */
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        int day = 0;
+        while (day < DAYS_PER_WEEK) {
+            int last = day;
+            while (last + 1 < DAYS_PER_WEEK && startSeconds[last + 1] == startSeconds[day] && endSeconds[last + 1] == endSeconds[day]) {
+                last++;
+            }
+            if (getWorkingSeconds(day) > 0) {
+                if (result.length() > 0) {
+                    result.append(", ");
+                }
+                result.append(dayName(day));
+                if (last > day) {
+                    result.append('-').append(dayName(last));
+                }
+                result.append(' ').append(LocalTime.ofSecondOfDay(startSeconds[day]))
+                        .append('-').append(endSeconds[day] == 86400 ? "24:00" : LocalTime.ofSecondOfDay(endSeconds[day]));
+            }
+            day = last + 1;
+        }
+        return result.toString();
+    }
+
+    private static String dayName(int dayOfWeek) {
+        return DayOfWeek.of(dayOfWeek + 1).getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
+    }
+
+    /**
+     * Collects working hours per day, days that are never set have no working time.
+     */
+    public static final class Builder {
+
+        private final int[] startSeconds = new int[DAYS_PER_WEEK];
+        private final int[] endSeconds = new int[DAYS_PER_WEEK];
+
+        private Builder() {}
+
+        /**
+         * Sets the working hours of one day
+         * @param day the day of the week
+         * @param start time work starts, whole minutes only
+         * @param end time work ends, whole minutes only and after the start, {@link LocalTime#MIDNIGHT} for end of day
+         */
+        public Builder workday(DayOfWeek day, LocalTime start, LocalTime end) {
+            int startSecond = toMinuteSecond(start);
+            int endSecond = end.equals(LocalTime.MIDNIGHT) ? 86400 : toMinuteSecond(end);
+            if (endSecond <= startSecond) {
+                throw new IllegalArgumentException(String.format("Work on %s must end after it starts: %s-%s", day, start, end));
+            }
+            startSeconds[day.ordinal()] = startSecond;
+            endSeconds[day.ordinal()] = endSecond;
+            return this;
+        }
+
+        /**
+         * Sets the same working hours for a run of days, both inclusive
+         * @param from first day of the run
+         * @param to last day of the run, may wrap around the end of the week
+         * @param start time work starts, whole minutes only
+         * @param end time work ends, whole minutes only and after the start
+         */
+        public Builder workdays(DayOfWeek from, DayOfWeek to, LocalTime start, LocalTime end) {
+            DayOfWeek day = from;
+            workday(day, start, end);
+            while (day != to) {
+                day = day.plus(1);
+                workday(day, start, end);
+            }
+            return this;
+        }
+
+        /**
+         * Removes the working hours of a day
+         * @param day the day of the week
+         */
+        public Builder dayOff(DayOfWeek day) {
+            startSeconds[day.ordinal()] = 0;
+            endSeconds[day.ordinal()] = 0;
+            return this;
+        }
+
+        public WorkSchedule build() {
+            WorkSchedule schedule = new WorkSchedule(startSeconds.clone(), endSeconds.clone());
+            if (schedule.getWeekSeconds() == 0) {
+                throw new IllegalStateException("A work schedule needs at least one workday");
+            }
+            return schedule;
+        }
+
+        private static int toMinuteSecond(LocalTime time) {
+            if (time.getSecond() != 0 || time.getNano() != 0) {
+                throw new IllegalArgumentException(String.format("Working hours must be whole minutes: %s", time));
+            }
+            return time.toSecondOfDay();
+        }
+    }
+}
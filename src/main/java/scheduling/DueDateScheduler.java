@@ -0,0 +1,326 @@
+package scheduling;
+
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fires callbacks when due dates arrive, using a hierarchical timing wheel with one second ticks.
+ * Each level has 64 slots and covers 64 times the span of the level below, eleven levels cover every epoch second.
+ * A callback sits in the slot of the highest 6 bit group where its due date differs from the current time and
+ * cascades one level down each time that group comes round, so inserting, cancelling and firing are O(1)
+ * no matter how many callbacks are outstanding.
+ * Each level keeps a bitmask of its occupied slots, so advancing jumps straight to the next slot that fires or cascades
+ * instead of visiting every second in between, a clock that jumps a year costs a handful of steps.
+ * Any thread may schedule or cancel without locking, the changes are queued and applied by the thread advancing the wheel.
+ * Callbacks run on that thread, either a caller of {@link #advance()} or the thread started by {@link #start()}.
+ */
+public class DueDateScheduler {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+
+    private static final int PENDING = 0; // queued for insertion
+    private static final int SCHEDULED = 1; // in the wheel
+    private static final int CANCELLED = 2;
+    private static final int FIRED = 3;
+
+    private final Clock clock;
+    private final Logger logger;
+    private final ScheduledCallback[][] heads = new ScheduledCallback[LEVELS][SLOTS];
+    private final long[] occupied = new long[LEVELS]; // bit n is set while slot n of the level holds callbacks
+    private final ConcurrentLinkedQueue<ScheduledCallback> inserts = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<ScheduledCallback> cancellations = new ConcurrentLinkedQueue<>();
+    private final AtomicLong outstanding = new AtomicLong();
+    private long currentSecond; // every callback due at or before this second has fired, only touched while advancing
+    private Thread ticker;
+
+    /**
+     * Scheduler starting at the clock's current time
+     * @param clock source of the current time, a fixed or hand advanced clock makes tests deterministic
+     * @param logger used to log callbacks that throw
+     */
+    public DueDateScheduler(Clock clock, Logger logger) {
+        this.clock = clock;
+        this.logger = logger;
+        this.currentSecond = clock.instant().getEpochSecond();
+    }
+
+    /**
+     * @param dueEpochSecond due date in seconds since the epoch, as returned by the task handler
+     * @param callback run once the clock reaches the due date, or on the next advance if it already has
+     * @return handle for cancelling the callback
+     */
+    public ScheduledCallback schedule(long dueEpochSecond, Runnable callback) {
+        ScheduledCallback scheduled = new ScheduledCallback(this, dueEpochSecond, callback);
+        outstanding.incrementAndGet();
+        inserts.add(scheduled);
+        return scheduled;
+    }
+
+    /**
+     * @param dueDate due date as returned by the task handler
+     * @param callback run once the clock reaches the due date, or on the next advance if it already has
+     * @return handle for cancelling the callback
+     */
+    public ScheduledCallback schedule(ZonedDateTime dueDate, Runnable callback) {
+        return schedule(dueDate.toEpochSecond(), callback);
+    }
+
+    /**
+     * @return callbacks scheduled that have neither fired nor been cancelled
+     */
+    public long getOutstandingCount() {
+        return outstanding.get();
+    }
+
+    /**
+     * Moves the wheel up to the clock's current time, firing every callback that has become due on the calling thread
+     * @return number of callbacks fired
+     */
+    public synchronized int advance() {
+        return advanceTo(clock.instant().getEpochSecond());
+    }
+
+    /**
+     * Starts a daemon thread advancing the wheel at the start of every second of the clock
+     */
+    public synchronized void start() {
+        if (ticker != null) {
+            throw new IllegalStateException("Due date scheduler is already running");
+        }
+        ticker = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                advance();
+                try {
+                    Thread.sleep(1000 - Math.floorMod(clock.millis(), 1000L));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "due-date-scheduler");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    /**
+     * Stops the thread started by {@link #start()}, outstanding callbacks stay scheduled
+     */
+    public void stop() {
+        Thread running;
+        synchronized (this) {
+            running = ticker;
+            ticker = null;
+        }
+        if (running != null) {
+            running.interrupt();
+            try {
+                running.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private int advanceTo(long targetSecond) {
+        int fired = applyQueuedChanges();
+        while (currentSecond < targetSecond) {
+            long second = nextOccupiedSecond();
+            if (second > targetSecond) {
+                currentSecond = targetSecond; // nothing to cascade or fire on the way
+                break;
+            }
+            currentSecond = second;
+            // A level comes round when every group below it wraps to zero, higher levels go first
+            // so callbacks cascading all the way down still fire this tick
+            int topLevel = Math.min(Long.numberOfTrailingZeros(second) / SLOT_BITS, LEVELS - 1);
+            for (int level = topLevel; level > 0; level--) {
+                cascade(level, (int) ((second >>> (level * SLOT_BITS)) & SLOT_MASK));
+            }
+            fired += fireSlot((int) (second & SLOT_MASK));
+        }
+        return fired;
+    }
+
+    // Returns the number of callbacks fired because they were already due when scheduled
+    private int applyQueuedChanges() {
+        int fired = 0;
+        for (ScheduledCallback scheduled = inserts.poll(); scheduled != null; scheduled = inserts.poll()) {
+            if (scheduled.state.compareAndSet(PENDING, SCHEDULED)) {
+                if (scheduled.dueEpochSecond <= currentSecond) {
+                    fired += fire(scheduled);
+                } else {
+                    link(scheduled);
+                }
+            }
+        }
+        for (ScheduledCallback cancelled = cancellations.poll(); cancelled != null; cancelled = cancellations.poll()) {
+            if (cancelled.level >= 0) {
+                unlink(cancelled);
+            }
+        }
+        return fired;
+    }
+
+    // First second after the current one at which an occupied slot cascades or fires, Long.MAX_VALUE if the wheel is empty.
+    // Callbacks sit in slots after the current one of their level, as the groups above it match the current second.
+    private long nextOccupiedSecond() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = level * SLOT_BITS;
+            int currentSlot = (int) ((currentSecond >>> shift) & SLOT_MASK);
+            long later = currentSlot == SLOT_MASK ? 0 : occupied[level] & (-1L << (currentSlot + 1));
+            if (later != 0) {
+                int higherShift = shift + SLOT_BITS;
+                long higher = higherShift >= Long.SIZE ? 0 : (currentSecond >>> higherShift) << higherShift;
+                next = Math.min(next, higher | ((long) Long.numberOfTrailingZeros(later) << shift));
+            }
+        }
+        return next;
+    }
+
+    // Due dates not after the current second land in the current second's slot, only happens while cascading
+    private void link(ScheduledCallback scheduled) {
+        long due = Math.max(scheduled.dueEpochSecond, currentSecond);
+        long difference = due ^ currentSecond;
+        int level = difference == 0 ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(difference)) / SLOT_BITS;
+        int slot = (int) ((due >>> (level * SLOT_BITS)) & SLOT_MASK);
+        scheduled.level = level;
+        scheduled.slot = slot;
+        scheduled.previous = null;
+        scheduled.next = heads[level][slot];
+        if (scheduled.next != null) {
+            scheduled.next.previous = scheduled;
+        }
+        heads[level][slot] = scheduled;
+        occupied[level] |= 1L << slot;
+    }
+
+    private void unlink(ScheduledCallback scheduled) {
+        if (scheduled.previous != null) {
+            scheduled.previous.next = scheduled.next;
+        } else {
+            heads[scheduled.level][scheduled.slot] = scheduled.next;
+            if (scheduled.next == null) {
+                occupied[scheduled.level] &= ~(1L << scheduled.slot);
+            }
+        }
+        if (scheduled.next != null) {
+            scheduled.next.previous = scheduled.previous;
+        }
+        scheduled.previous = null;
+        scheduled.next = null;
+        scheduled.level = -1;
+    }
+
+    // Moves every callback in a slot down to the level its due date now falls in
+    private void cascade(int level, int slot) {
+        ScheduledCallback scheduled = heads[level][slot];
+        heads[level][slot] = null;
+        occupied[level] &= ~(1L << slot);
+        while (scheduled != null) {
+            ScheduledCallback next = scheduled.next;
+            if (scheduled.state.get() == CANCELLED) {
+                scheduled.previous = null;
+                scheduled.next = null;
+                scheduled.level = -1;
+            } else {
+                link(scheduled);
+            }
+            scheduled = next;
+        }
+    }
+
+    // Fires the bottom level slot of the current second
+    private int fireSlot(int slot) {
+        ScheduledCallback scheduled = heads[0][slot];
+        heads[0][slot] = null;
+        occupied[0] &= ~(1L << slot);
+        int fired = 0;
+        while (scheduled != null) {
+            ScheduledCallback next = scheduled.next;
+            scheduled.previous = null;
+            scheduled.next = null;
+            scheduled.level = -1;
+            fired += fire(scheduled);
+            scheduled = next;
+        }
+        return fired;
+    }
+
+    // Returns 1 if the callback ran, 0 if it was cancelled first
+    private int fire(ScheduledCallback scheduled) {
+        if (!scheduled.state.compareAndSet(SCHEDULED, FIRED)) {
+            return 0;
+        }
+        outstanding.decrementAndGet();
+        try {
+            scheduled.callback.run();
+        } catch (RuntimeException e) {
+            long due = scheduled.dueEpochSecond;
+            logger.log(Level.SEVERE, e, () -> String.format("Callback for due date %d failed", due));
+        }
+        return 1;
+    }
+
+    /**
+     * Handle to a scheduled callback
+     */
+    public static final class ScheduledCallback {
+
+        private final DueDateScheduler scheduler;
+        private final long dueEpochSecond;
+        private final Runnable callback;
+        private final AtomicInteger state = new AtomicInteger(PENDING);
+
+        // Wheel position, only touched by the advancing thread
+        private ScheduledCallback previous;
+        private ScheduledCallback next;
+        private int level = -1;
+        private int slot;
+
+        private ScheduledCallback(DueDateScheduler scheduler, long dueEpochSecond, Runnable callback) {
+            this.scheduler = scheduler;
+            this.dueEpochSecond = dueEpochSecond;
+            this.callback = callback;
+        }
+
+        public long getDueEpochSecond() {
+            return dueEpochSecond;
+        }
+
+        /**
+         * Stops the callback from firing
+         * @return false if it has already fired or been cancelled
+         */
+        public boolean cancel() {
+            int current = state.get();
+            while (current == PENDING || current == SCHEDULED) {
+                if (state.compareAndSet(current, CANCELLED)) {
+                    scheduler.outstanding.decrementAndGet();
+                    // Only callbacks already in the wheel need unlinking, pending ones are skipped when inserted
+                    if (current == SCHEDULED) {
+                        scheduler.cancellations.add(this);
+                    }
+                    return true;
+                }
+                current = state.get();
+            }
+            return false;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isFired() {
+            return state.get() == FIRED;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+import logging.MockLogger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.List;
+
+public class DueDateServerTest {
+
+    TaskHandler taskHandler;
+    MockLogger mockLogger = new MockLogger("TestLogger");
+
+    @BeforeEach
+    public void Setup() {
+        taskHandler = new TaskHandler(mockLogger);
+    }
+
+    @Test
+    public void serverAnswersSingleAndBatchRequests() throws IOException, InterruptedException {
+        DueDateServer server = new DueDateServer(taskHandler, mockLogger, ZoneId.of("America/New_York"));
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            URI base = URI.create("http://localhost:" + server.getPort());
+
+            HttpResponse<String> single = client.send(HttpRequest.newBuilder(base.resolve("/duedate"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"startDate\":\"2024-09-02T16:34:23-04:00\",\"taskDuration\":20}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, single.statusCode());
+            Assertions.assertEquals("{\"dueDate\":\"2024-09-05T12:34:23-04:00\",\"status\":\"OK\"}\n", single.body());
+
+            HttpResponse<String> weekend = client.send(HttpRequest.newBuilder(base.resolve("/duedate"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"startDate\":\"2024-09-07T16:50:30-04:00\",\"taskDuration\":10}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(422, weekend.statusCode());
+
+            HttpResponse<String> malformed = client.send(HttpRequest.newBuilder(base.resolve("/duedate"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"startDate\":\"tomorrow\"}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(400, malformed.statusCode());
+
+            HttpResponse<String> batch = client.send(HttpRequest.newBuilder(base.resolve("/duedates?zone=Europe%2FLondon"))
+                    .POST(HttpRequest.BodyPublishers.ofString(String.join("\n",
+                            "{\"startDate\":\"2024-09-02T16:00:00+01:00\",\"taskDuration\":2}",
+                            "{\"startDate\":\"2024-09-07T10:00:00+01:00\",\"taskDuration\":2}",
+                            "nonsense")))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(200, batch.statusCode());
+            Assertions.assertEquals(List.of(
+                    "{\"dueDate\":\"2024-09-03T10:00:00+01:00\",\"status\":\"OK\"}",
+                    "{\"dueDate\":null,\"status\":\"INVALID_START\"}",
+                    "{\"dueDate\":null,\"status\":\"INVALID_INPUT\"}"), batch.body().lines().toList());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void serverCoalescesConcurrentRequestsUnderLoad() throws IOException, InterruptedException {
+        DueDateServer server = new DueDateServer(taskHandler, mockLogger, ZoneId.of("America/New_York"), Duration.ofMillis(5));
+        server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        try {
+            DueDateLoadGenerator.LoadReport report = new DueDateLoadGenerator(URI.create("http://localhost:" + server.getPort())).run(16, 50);
+
+            Assertions.assertEquals(800, report.getRequests());
+            Assertions.assertEquals(0, report.getErrors());
+            Assertions.assertTrue(report.getLatencyPercentile(50) > 0);
+            Assertions.assertTrue(report.getLatencyPercentile(99) >= report.getLatencyPercentile(50));
+            Assertions.assertEquals(800, server.getSingleRequestCount());
+            Assertions.assertTrue(server.getCoalescedCalculationCount() < server.getSingleRequestCount());
+        } finally {
+            server.stop();
+        }
+    }
+}
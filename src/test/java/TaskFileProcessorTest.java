@@ -0,0 +1,114 @@
+import exceptions.InvalidTaskDateException;
+import exceptions.TaskHandlerException;
+import formats.TaskFileFormat;
+import logging.MockLogger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+public class TaskFileProcessorTest {
+
+    TaskHandler taskHandler;
+    MockLogger mockLogger = new MockLogger("TestLogger");
+
+    @BeforeEach
+    public void Setup() {
+        taskHandler = new TaskHandler(mockLogger);
+    }
+
+    @Test
+    public void processCsvFile(@TempDir Path tempDir) throws IOException {
+        Path input = tempDir.resolve("tasks.csv");
+        Path output = tempDir.resolve("due.csv");
+        Files.writeString(input, String.join("\n",
+                "startDate,taskDuration",
+                "2024-09-02T16:34:23-04:00,20",
+                "09/02/2024 16:34:23,20",
+                "2024-09-02T20:34:23Z, 3",
+                "2024-09-07T16:50:30-04:00,10",
+                "2024-09-06T15:00:00-04:00,-3",
+                "",
+                "not a date,5",
+                "2024-02-30T10:00:00-05:00,5"));
+
+        TaskFileProcessor.Summary summary = new TaskFileProcessor(taskHandler, mockLogger, 2)
+                .process(input, output, TaskFileFormat.CSV, ZoneId.of("America/New_York"));
+
+        Assertions.assertEquals(List.of(
+                "dueDate,status",
+                "2024-09-05T12:34:23-04:00,OK",
+                "2024-09-05T12:34:23-04:00,OK",
+                "2024-09-03T11:34:23-04:00,OK",
+                ",INVALID_START",
+                ",INVALID_LENGTH",
+                ",INVALID_INPUT",
+                ",INVALID_INPUT"), Files.readAllLines(output));
+        Assertions.assertEquals(7, summary.getRows());
+        Assertions.assertEquals(4, summary.getRejected());
+        Assertions.assertTrue(summary.getRowsPerSecond() > 0);
+        Assertions.assertTrue(mockLogger.getLogEntries().stream()
+                .anyMatch(l -> l.getLevel() == Level.INFO && l.getMessage().contains("rows/s")));
+    }
+
+    @Test
+    public void processNdjsonFile(@TempDir Path tempDir) throws IOException {
+        Path input = tempDir.resolve("tasks.ndjson");
+        Path output = tempDir.resolve("due.ndjson");
+        Files.writeString(input, String.join("\n",
+                "{\"id\": 7, \"startDate\": \"2024-09-02T16:34:23-04:00\", \"taskDuration\": 20}",
+                "{\"taskDuration\":1,\"tags\":[\"a\",{\"b\":\"}\"}],\"startDate\":\"2024-09-02T16:34:23-04:00\"}",
+                "{\"startDate\":\"2024-09-07T16:50:30-04:00\",\"taskDuration\":10}",
+                "{\"startDate\":\"2024-09-02T16:34:23-04:00\"}",
+                ""));
+
+        new TaskFileProcessor(taskHandler, mockLogger, 2).process(input, output, TaskFileFormat.NDJSON, ZoneId.of("America/New_York"));
+
+        Assertions.assertEquals(List.of(
+                "{\"dueDate\":\"2024-09-05T12:34:23-04:00\",\"status\":\"OK\"}",
+                "{\"dueDate\":\"2024-09-03T09:34:23-04:00\",\"status\":\"OK\"}",
+                "{\"dueDate\":null,\"status\":\"INVALID_START\"}",
+                "{\"dueDate\":null,\"status\":\"INVALID_INPUT\"}"), Files.readAllLines(output));
+    }
+
+    @Test
+    public void processFileAcrossChunksAndWindows(@TempDir Path tempDir) throws IOException, TaskHandlerException {
+        ZoneId zone = ZoneId.of("America/New_York");
+        Random random = new Random(7);
+        long monday = ZonedDateTime.of(2024, 1, 1, 9, 0, 0, 0, zone).toEpochSecond();
+        StringBuilder tasks = new StringBuilder("startDate,taskDuration\n");
+        List<String> expected = new ArrayList<>(List.of("dueDate,status"));
+        for (int i = 0; i < 20000; i++) {
+            ZonedDateTime startDate = Instant.ofEpochSecond(monday + random.nextInt(400) * 86400L + random.nextInt(8 * 3600 + 1)).atZone(zone);
+            int taskDuration = random.nextInt(3000) - 10;
+            tasks.append(startDate.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)).append(',').append(taskDuration).append('\n');
+            try {
+                expected.add(taskHandler.calculateDueDate(new Task(startDate, taskDuration)).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME) + ",OK");
+            } catch (InvalidTaskDateException e) {
+                expected.add(",INVALID_START");
+            } catch (TaskHandlerException e) {
+                expected.add(",INVALID_LENGTH");
+            }
+        }
+        Path input = tempDir.resolve("tasks.csv");
+        Path output = tempDir.resolve("due.csv");
+        Files.writeString(input, tasks);
+
+        // Chunks of a few rows and windows of a few hundred, so lines straddle both
+        new TaskFileProcessor(taskHandler, mockLogger, 3, 200, 10000).process(input, output, TaskFileFormat.CSV, zone);
+
+        Assertions.assertEquals(expected, Files.readAllLines(output));
+    }
+}
@@ -1,13 +1,42 @@
+import cache.CacheStats;
+import cache.DueDateCache;
+import calculation.DueDateStatus;
 import exceptions.InvalidTaskDateException;
 import exceptions.TaskHandlerException;
+import holidays.HolidayCalendar;
+import index.DueDateIndex;
 import logging.MockLogger;
+import metrics.MetricsSnapshot;
+import metrics.TaskHandlerMetrics;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-
+import org.junit.jupiter.api.io.TempDir;
+import schedule.WorkSchedule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -21,6 +50,7 @@ public class TaskHandlerTest {
 
     // This works for the years tested in this file, but we could generate this dynamically in the future.
     private static final int WORKDAYS_IN_YEAR = 261;
+    private static final int REJECTED_LOG_SAMPLE_RATE = 1000;
 
     String invalidTaskDateExceptionExpected = "Expected a InvalidTaskDateException but none was thrown";
     String taskHandlerExceptionExpected = "Expected a TaskDateHandlerException but none was thrown";
@@ -257,7 +287,639 @@ public class TaskHandlerTest {
         ZonedDateTime resultDate = taskHandler.calculateDueDate(new Task(startDate, yearAndOneHourTask));
         Assertions.assertEquals(expectedDueDate, resultDate);
     }
+
+    @Test
+    // Long tasks used to recurse once per workday, ensure we can handle these without stack issues
+    public void incrementTenThousandWeeks() throws TaskHandlerException, InvalidTaskDateException {
+        ZonedDateTime startDate = ZonedDateTime.parse("09/06/2024 16:34:23 UTC", dtFormat);
+        ZonedDateTime expectedDueDate = ZonedDateTime.parse("05/03/2216 16:34:23 UTC", dtFormat);
+        ZonedDateTime resultDate = taskHandler.calculateDueDate(new Task(startDate, 10000 * 40));
+        Assertions.assertEquals(expectedDueDate, resultDate);
+    }
+    //endregion
+
+    //region Epoch Second Tests
+    @Test
+    public void epochSecondMatchesTask() throws TaskHandlerException, InvalidTaskDateException {
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 16:34:23 EST", dtFormat);
+        ZonedDateTime expectedDueDate = ZonedDateTime.parse("09/05/2024 12:34:23 EST", dtFormat);
+        long resultDate = taskHandler.calculateDueDate(startDate.toEpochSecond(), 20, startDate.getZone());
+        Assertions.assertEquals(expectedDueDate.toEpochSecond(), resultDate);
+    }
+
+    @Test
+    public void epochSecondFixedOffset() throws TaskHandlerException, InvalidTaskDateException {
+        ZonedDateTime startDate = ZonedDateTime.parse("09/06/2024 16:34:23 UTC", dtFormat);
+        ZonedDateTime expectedDueDate = ZonedDateTime.parse("09/09/2024 09:34:23 UTC", dtFormat);
+        long resultDate = taskHandler.calculateDueDate(startDate.toEpochSecond(), 1, ZoneOffset.UTC);
+        Assertions.assertEquals(expectedDueDate.toEpochSecond(), resultDate);
+    }
+
+    @Test
+    public void epochSecondInvalid() {
+        ZonedDateTime startDate = ZonedDateTime.parse("09/07/2024 16:50:30 EST", dtFormat);
+        assertThrows(InvalidTaskDateException.class,
+                () -> taskHandler.calculateDueDate(startDate.toEpochSecond(), 10, startDate.getZone()),
+                invalidTaskDateExceptionExpected);
+
+        ZonedDateTime validDate = ZonedDateTime.parse("09/06/2024 15:00:00 EST", dtFormat);
+        assertThrows(TaskHandlerException.class,
+                () -> taskHandler.calculateDueDate(validDate.toEpochSecond(), 0, validDate.getZone()),
+                taskHandlerExceptionExpected);
+    }
+    //endregion
+
+    //region Batch Tests
+    @Test
+    public void batchMatchesSingle() throws TaskHandlerException, InvalidTaskDateException {
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 09:00:00 EST", dtFormat);
+        int rows = 20000; // large enough to be split across threads
+        long[] starts = new long[rows];
+        int[] durations = new int[rows];
+        for (int i = 0; i < rows; i++) {
+            starts[i] = startDate.toEpochSecond() + (i % 480) * 60L; // every minute of the work day
+            durations[i] = 1 + i % 1000;
+        }
+        long[] dueDates = new long[rows];
+        byte[] statuses = new byte[rows];
+
+        int rejected = taskHandler.calculateDueDates(starts, durations, startDate.getZone(), dueDates, statuses);
+
+        Assertions.assertEquals(0, rejected);
+        for (int i = 0; i < rows; i++) {
+            Assertions.assertEquals(DueDateStatus.OK, statuses[i]);
+            Assertions.assertEquals(taskHandler.calculateDueDate(starts[i], durations[i], startDate.getZone()), dueDates[i]);
+        }
+    }
+
+    @Test
+    public void batchFlagsInvalidRows() {
+        ZonedDateTime validDate = ZonedDateTime.parse("09/06/2024 15:00:00 EST", dtFormat);
+        ZonedDateTime weekendDate = ZonedDateTime.parse("09/07/2024 15:00:00 EST", dtFormat);
+        long[] starts = {validDate.toEpochSecond(), weekendDate.toEpochSecond(), validDate.toEpochSecond()};
+        int[] durations = {1, 1, 0};
+        long[] dueDates = new long[3];
+        byte[] statuses = new byte[3];
+
+        int rejected = taskHandler.calculateDueDates(starts, durations, validDate.getZone(), dueDates, statuses);
+
+        Assertions.assertEquals(2, rejected);
+        Assertions.assertArrayEquals(new byte[]{DueDateStatus.OK, DueDateStatus.INVALID_START, DueDateStatus.INVALID_LENGTH}, statuses);
+        Assertions.assertEquals(validDate.plusHours(1).toEpochSecond(), dueDates[0]);
+
+        //Validate Logging, one summary rather than an entry per row
+        long logCount = mockLogger.getLogEntries().stream()
+                .filter(l -> l.getLevel() == Level.WARNING).count();
+        Assertions.assertEquals(1, logCount);
+    }
+    //endregion
+
+    //region Working Hours Between Tests
+    @Test
+    public void workingHoursBetweenOverWeekend() {
+        ZonedDateTime startDate = ZonedDateTime.parse("09/06/2024 16:34:23 EST", dtFormat);
+        ZonedDateTime endDate = ZonedDateTime.parse("09/09/2024 09:34:23 EST", dtFormat);
+        Assertions.assertEquals(1.0, taskHandler.workingHoursBetween(startDate, endDate));
+        Assertions.assertEquals(-1.0, taskHandler.workingHoursBetween(endDate, startDate));
+    }
+
+    @Test
+    public void workingHoursBetweenOutsideWorkingHours() {
+        // Saturday to Monday 8am has no working time
+        ZonedDateTime startDate = ZonedDateTime.parse("09/07/2024 12:00:00 EST", dtFormat);
+        ZonedDateTime endDate = ZonedDateTime.parse("09/09/2024 08:00:00 EST", dtFormat);
+        Assertions.assertEquals(0.0, taskHandler.workingHoursBetween(startDate, endDate));
+    }
+
+    @Test
+    public void workingHoursBetweenMatchesDueDate() throws TaskHandlerException, InvalidTaskDateException {
+        int threeYearTask = (WORKDAYS_IN_YEAR * 3) * 8;
+        ZonedDateTime startDate = ZonedDateTime.parse("01/01/2025 16:34:23 EST", dtFormat);
+        ZonedDateTime dueDate = taskHandler.calculateDueDate(new Task(startDate, threeYearTask));
+        Assertions.assertEquals(threeYearTask, taskHandler.workingHoursBetween(startDate, dueDate));
+    }
+
+    @Test
+    public void workingHoursBetweenAcrossCenturies() throws TaskHandlerException, InvalidTaskDateException {
+        List<LocalDate> holidayDates = new ArrayList<>();
+        for (int year = 2000; year <= 2100; year++) {
+            holidayDates.add(LocalDate.of(year, 1, 1));
+            holidayDates.add(LocalDate.of(year, 12, 25));
+        }
+        HolidayCalendar holidays = HolidayCalendar.of(holidayDates);
+        TaskHandler holidayHandler = TaskHandler.builder().logger(mockLogger).holidays(holidays).build();
+        // Wednesday to Thursday four centuries later
+        ZonedDateTime startDate = ZonedDateTime.of(1950, 3, 1, 10, 0, 0, 0, ZoneOffset.UTC);
+        ZonedDateTime endDate = ZonedDateTime.of(2350, 6, 15, 12, 0, 0, 0, ZoneOffset.UTC);
+
+        // Count day by day, 7 hours left on the start day and 3 worked on the end day
+        long expectedHours = 7 + 3;
+        for (LocalDate day = startDate.toLocalDate().plusDays(1); day.isBefore(endDate.toLocalDate()); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY && !holidays.isHoliday(day.toEpochDay())) {
+                expectedHours += 8;
+            }
+        }
+        Assertions.assertEquals(expectedHours, holidayHandler.workingHoursBetween(startDate, endDate));
+        Assertions.assertEquals(endDate, holidayHandler.calculateDueDate(new Task(startDate, Math.toIntExact(expectedHours))));
+    }
+    //endregion
+
+    //region Holiday Tests
+    @Test
+    public void holidayStartDateInvalid() {
+        // Labor day
+        TaskHandler holidayHandler = TaskHandler.builder()
+                .logger(mockLogger)
+                .holidays(HolidayCalendar.of(List.of(LocalDate.of(2024, 9, 2))))
+                .build();
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 10:00:00 EST", dtFormat);
+        assertThrows(InvalidTaskDateException.class,
+                () -> holidayHandler.calculateDueDate(new Task(startDate, 1)),
+                invalidTaskDateExceptionExpected);
+    }
+
+    @Test
+    public void incrementOverHolidayWeekend() throws TaskHandlerException, InvalidTaskDateException {
+        // Friday before and Monday after a long weekend
+        TaskHandler holidayHandler = TaskHandler.builder()
+                .logger(mockLogger)
+                .holidays(HolidayCalendar.of(List.of(LocalDate.of(2024, 8, 30), LocalDate.of(2024, 9, 2))))
+                .build();
+        ZonedDateTime startDate = ZonedDateTime.parse("08/29/2024 16:34:23 EST", dtFormat);
+        ZonedDateTime expectedDueDate = ZonedDateTime.parse("09/03/2024 09:34:23 EST", dtFormat);
+        ZonedDateTime resultDate = holidayHandler.calculateDueDate(new Task(startDate, 1));
+        Assertions.assertEquals(expectedDueDate, resultDate);
+        Assertions.assertEquals(1.0, holidayHandler.workingHoursBetween(startDate, resultDate));
+    }
+
+    @Test
+    public void holidayCalendarMappedFromFile(@TempDir Path tempDir) throws IOException, TaskHandlerException, InvalidTaskDateException {
+        Path file = tempDir.resolve("holidays.bin");
+        HolidayCalendar.of(List.of(LocalDate.of(2024, 12, 25), LocalDate.of(2025, 1, 1))).write(file);
+        HolidayCalendar holidays = HolidayCalendar.load(file);
+
+        Assertions.assertTrue(holidays.isHoliday(LocalDate.of(2024, 12, 25).toEpochDay()));
+        Assertions.assertTrue(holidays.isHoliday(LocalDate.of(2025, 1, 1).toEpochDay()));
+        Assertions.assertFalse(holidays.isHoliday(LocalDate.of(2024, 12, 24).toEpochDay()));
+
+        TaskHandler holidayHandler = TaskHandler.builder().logger(mockLogger).holidays(holidays).build();
+        ZonedDateTime startDate = ZonedDateTime.parse("12/24/2024 16:00:00 EST", dtFormat);
+        ZonedDateTime expectedDueDate = ZonedDateTime.parse("12/26/2024 10:00:00 EST", dtFormat);
+        Assertions.assertEquals(expectedDueDate, holidayHandler.calculateDueDate(new Task(startDate, 2)));
+    }
+
+    @Test
+    public void holidayCalendarFileValidated(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("holidays.bin");
+        HolidayCalendar.of(List.of(LocalDate.of(2024, 12, 25), LocalDate.of(2025, 1, 1))).write(file);
+        byte[] valid = Files.readAllBytes(file);
+
+        // Cut off part way through the second year
+        Files.write(file, Arrays.copyOf(valid, valid.length - 8));
+        Assertions.assertTrue(assertThrows(IOException.class, () -> HolidayCalendar.load(file)).getMessage().contains("Truncated"));
+
+        // Header claiming years no LocalDate can hold
+        byte[] corrupt = valid.clone();
+        ByteBuffer.wrap(corrupt).putInt(8, Integer.MAX_VALUE);
+        Files.write(file, corrupt);
+        Assertions.assertTrue(assertThrows(IOException.class, () -> HolidayCalendar.load(file)).getMessage().contains("Corrupt"));
+
+        corrupt = valid.clone();
+        ByteBuffer.wrap(corrupt).putInt(12, -2);
+        Files.write(file, corrupt);
+        Assertions.assertTrue(assertThrows(IOException.class, () -> HolidayCalendar.load(file)).getMessage().contains("Corrupt"));
+
+        HolidayCalendar.EMPTY.write(file);
+        Assertions.assertTrue(HolidayCalendar.load(file).isEmpty());
+    }
+    //endregion
+
+    //region Work Schedule Tests
+    @Test
+    public void earlyShiftSchedule() throws TaskHandlerException, InvalidTaskDateException {
+        WorkSchedule earlyShift = WorkSchedule.builder()
+                .workdays(DayOfWeek.MONDAY, DayOfWeek.FRIDAY, LocalTime.of(7, 0), LocalTime.of(15, 30))
+                .build();
+        TaskHandler shiftHandler = TaskHandler.builder().logger(mockLogger).schedule(earlyShift).build();
+
+        // 30 minutes left on Friday, 8.5 hours per day after that
+        ZonedDateTime startDate = ZonedDateTime.parse("09/06/2024 15:00:00 EST", dtFormat);
+        ZonedDateTime expectedDueDate = ZonedDateTime.parse("09/09/2024 15:30:00 EST", dtFormat);
+        Assertions.assertEquals(expectedDueDate, shiftHandler.calculateDueDate(new Task(startDate, 9)));
+
+        ZonedDateTime lateDate = ZonedDateTime.parse("09/06/2024 16:00:00 EST", dtFormat);
+        assertThrows(InvalidTaskDateException.class,
+                () -> shiftHandler.calculateDueDate(new Task(lateDate, 1)),
+                invalidTaskDateExceptionExpected);
+    }
+
+    @Test
+    public void sixDayWeekSchedule() throws TaskHandlerException, InvalidTaskDateException {
+        WorkSchedule sixDayWeek = WorkSchedule.builder()
+                .workdays(DayOfWeek.MONDAY, DayOfWeek.SATURDAY, LocalTime.of(9, 0), LocalTime.of(17, 0))
+                .build();
+        TaskHandler sixDayHandler = TaskHandler.builder().logger(mockLogger).schedule(sixDayWeek).build();
+
+        ZonedDateTime startDate = ZonedDateTime.parse("09/06/2024 16:34:23 EST", dtFormat);
+        ZonedDateTime expectedDueDate = ZonedDateTime.parse("09/07/2024 09:34:23 EST", dtFormat);
+        Assertions.assertEquals(expectedDueDate, sixDayHandler.calculateDueDate(new Task(startDate, 1)));
+
+        // A 48 hour week brings us back to the same time next week
+        ZonedDateTime expectedWeekDueDate = ZonedDateTime.parse("09/13/2024 16:34:23 EST", dtFormat);
+        Assertions.assertEquals(expectedWeekDueDate, sixDayHandler.calculateDueDate(new Task(startDate, 48)));
+    }
+
+    @Test
+    public void scheduleRequiresWholeMinutes() {
+        assertThrows(IllegalArgumentException.class,
+                () -> WorkSchedule.builder().workday(DayOfWeek.MONDAY, LocalTime.of(9, 0, 30), LocalTime.of(17, 0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> WorkSchedule.builder().workday(DayOfWeek.MONDAY, LocalTime.of(17, 0), LocalTime.of(9, 0)));
+        assertThrows(IllegalStateException.class, () -> WorkSchedule.builder().build());
+    }
+    //endregion
+
+    //region Daylight Saving Tests
+    @Test
+    public void incrementOverSpringForwardWeekend() throws TaskHandlerException, InvalidTaskDateException {
+        // Clocks go forward on Sunday 03/10/2024
+        ZonedDateTime startDate = ZonedDateTime.parse("03/08/2024 16:00:00 EST", dtFormat);
+        ZonedDateTime expectedDueDate = ZonedDateTime.parse("03/11/2024 10:00:00 EST", dtFormat);
+        ZonedDateTime resultDate = taskHandler.calculateDueDate(new Task(startDate, 2));
+        Assertions.assertEquals(expectedDueDate, resultDate);
+        Assertions.assertEquals(expectedDueDate.toEpochSecond(), taskHandler.calculateDueDate(startDate.toEpochSecond(), 2, startDate.getZone()));
+    }
+
+    @Test
+    public void incrementOverFallBackWeekend() throws TaskHandlerException, InvalidTaskDateException {
+        // Clocks go back on Sunday 11/03/2024
+        ZonedDateTime startDate = ZonedDateTime.parse("11/01/2024 16:00:00 EST", dtFormat);
+        ZonedDateTime expectedDueDate = ZonedDateTime.parse("11/04/2024 10:00:00 EST", dtFormat);
+        ZonedDateTime resultDate = taskHandler.calculateDueDate(new Task(startDate, 2));
+        Assertions.assertEquals(expectedDueDate, resultDate);
+        Assertions.assertEquals(2.0, taskHandler.workingHoursBetween(startDate, resultDate));
+    }
+
+    @Test
+    public void incrementOverWeekdaySpringForward() throws TaskHandlerException, InvalidTaskDateException {
+        // Cairo moved clocks forward at midnight going into Friday 04/28/2023, working hours keep to the wall clock
+        ZoneId cairo = ZoneId.of("Africa/Cairo");
+        ZonedDateTime startDate = ZonedDateTime.of(LocalDateTime.of(2023, 4, 27, 16, 0), cairo);
+        ZonedDateTime expectedDueDate = ZonedDateTime.of(LocalDateTime.of(2023, 4, 28, 10, 0), cairo);
+        Assertions.assertEquals(expectedDueDate, taskHandler.calculateDueDate(new Task(startDate, 2)));
+    }
+
+    @Test
+    public void incrementOverWeekdayFallBack() throws TaskHandlerException, InvalidTaskDateException {
+        // Cairo moved clocks back at midnight going into Friday 10/27/2023
+        ZoneId cairo = ZoneId.of("Africa/Cairo");
+        ZonedDateTime startDate = ZonedDateTime.of(LocalDateTime.of(2023, 10, 26, 16, 0), cairo);
+        ZonedDateTime expectedDueDate = ZonedDateTime.of(LocalDateTime.of(2023, 10, 27, 10, 0), cairo);
+        Assertions.assertEquals(expectedDueDate, taskHandler.calculateDueDate(new Task(startDate, 2)));
+    }
     //endregion
 
+    //region Result Tests
+    @Test
+    public void tryCalculateValid() {
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 16:34:23 EST", dtFormat);
+        ZonedDateTime expectedDueDate = ZonedDateTime.parse("09/05/2024 12:34:23 EST", dtFormat);
+        DueDateResult result = taskHandler.tryCalculateDueDate(new Task(startDate, 20));
+        Assertions.assertTrue(result.isOk());
+        Assertions.assertEquals(DueDateStatus.OK, result.getStatus());
+        Assertions.assertEquals(expectedDueDate, result.getDueDate());
+    }
+
+    @Test
+    public void tryCalculateInvalid() {
+        ZonedDateTime weekendDate = ZonedDateTime.parse("09/07/2024 16:50:30 EST", dtFormat);
+        DueDateResult invalidStart = taskHandler.tryCalculateDueDate(new Task(weekendDate, 10));
+        Assertions.assertEquals(DueDateStatus.INVALID_START, invalidStart.getStatus());
+        Assertions.assertNull(invalidStart.getDueDate());
+
+        ZonedDateTime validDate = ZonedDateTime.parse("09/06/2024 15:00:00 EST", dtFormat);
+        DueDateResult invalidLength = taskHandler.tryCalculateDueDate(new Task(validDate, -3));
+        Assertions.assertEquals(DueDateStatus.INVALID_LENGTH, invalidLength.getStatus());
+        Assertions.assertNull(invalidLength.getDueDate());
+    }
 
+    @Test
+    public void tryCalculateSamplesLogging() {
+        ZonedDateTime weekendDate = ZonedDateTime.parse("09/07/2024 16:50:30 EST", dtFormat);
+        for (int i = 0; i < 2500; i++) {
+            Assertions.assertFalse(taskHandler.tryCalculateDueDate(new Task(weekendDate, 10)).isOk());
+        }
+
+        //Validate Logging, the first rejection and every thousandth after it
+        long logCount = mockLogger.getLogEntries().stream()
+                .filter(l -> (l.getLevel() == Level.SEVERE && l.getMessage().contains(invalidTaskDateLogMessage))).count();
+        Assertions.assertEquals(3, logCount);
+    }
+    //endregion
+
+    //region Metrics Tests
+    @Test
+    public void metricsCountOutcomes() throws InvalidTaskDateException, TaskHandlerException {
+        TaskHandlerMetrics metrics = new TaskHandlerMetrics();
+        TaskHandler meteredHandler = TaskHandler.builder().logger(mockLogger).metrics(metrics).build();
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 16:34:23 EST", dtFormat);
+        ZonedDateTime weekendDate = ZonedDateTime.parse("09/07/2024 16:50:30 EST", dtFormat);
+
+        meteredHandler.calculateDueDate(new Task(startDate, 20));
+        meteredHandler.tryCalculateDueDate(new Task(startDate, 3));
+        meteredHandler.tryCalculateDueDate(new Task(weekendDate, 10));
+        assertThrows(InvalidTaskDateException.class, () -> meteredHandler.calculateDueDate(new Task(weekendDate, 10)));
+        assertThrows(TaskHandlerException.class, () -> meteredHandler.calculateDueDate(new Task(startDate, 0)));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        Assertions.assertEquals(2, snapshot.getSuccessCount());
+        Assertions.assertEquals(2, snapshot.getInvalidDateCount());
+        Assertions.assertEquals(1, snapshot.getInvalidLengthCount());
+        Assertions.assertEquals(0, snapshot.getInternalErrorCount());
+    }
+
+    @Test
+    public void metricsLatencyByDuration() throws InvalidTaskDateException, TaskHandlerException {
+        TaskHandlerMetrics metrics = new TaskHandlerMetrics();
+        TaskHandler meteredHandler = TaskHandler.builder().logger(mockLogger).metrics(metrics).build();
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 16:34:23 EST", dtFormat);
+        for (int i = 0; i < 10; i++) {
+            meteredHandler.calculateDueDate(new Task(startDate, 40));
+        }
+        meteredHandler.calculateDueDate(new Task(startDate, 1));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        long weekCount = 0;
+        long hourCount = 0;
+        for (int latencyBucket = 0; latencyBucket < TaskHandlerMetrics.LATENCY_BUCKETS; latencyBucket++) {
+            weekCount += snapshot.getLatencyCount(TaskHandlerMetrics.durationBucket(40), latencyBucket);
+            hourCount += snapshot.getLatencyCount(TaskHandlerMetrics.durationBucket(1), latencyBucket);
+        }
+        Assertions.assertEquals(10, weekCount);
+        Assertions.assertEquals(1, hourCount);
+        Assertions.assertTrue(snapshot.getLatencyPercentile(TaskHandlerMetrics.durationBucket(40), 99) > 0);
+        Assertions.assertEquals(0, snapshot.getLatencyPercentile(TaskHandlerMetrics.durationBucket(1000), 99));
+    }
+
+    @Test
+    public void metricsBatchAndReset() {
+        TaskHandlerMetrics metrics = new TaskHandlerMetrics();
+        TaskHandler meteredHandler = TaskHandler.builder().logger(mockLogger).metrics(metrics).build();
+        long monday = ZonedDateTime.parse("09/02/2024 16:34:23 EST", dtFormat).toEpochSecond();
+        long saturday = ZonedDateTime.parse("09/07/2024 16:50:30 EST", dtFormat).toEpochSecond();
+        long[] starts = {monday, saturday, monday, monday};
+        int[] durations = {20, 10, -1, 5};
+        meteredHandler.calculateDueDates(starts, durations, ZoneId.of("America/New_York"), new long[4], new byte[4]);
+
+        MetricsSnapshot snapshot = metrics.snapshotAndReset();
+        Assertions.assertEquals(2, snapshot.getSuccessCount());
+        Assertions.assertEquals(1, snapshot.getInvalidDateCount());
+        Assertions.assertEquals(1, snapshot.getInvalidLengthCount());
+
+        MetricsSnapshot afterReset = metrics.snapshot();
+        Assertions.assertEquals(0, afterReset.getSuccessCount());
+        Assertions.assertEquals(0, afterReset.getInvalidDateCount());
+        Assertions.assertEquals(0, afterReset.getInvalidLengthCount());
+    }
+    //endregion
+
+    //region Chain Tests
+    @Test
+    public void chainMatchesSequentialTasks() throws InvalidTaskDateException, TaskHandlerException {
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 16:34:23 EST", dtFormat);
+        int[] taskDurations = {1, 8, 3, 40, 2, 7, 16};
+
+        ZonedDateTime[] chain = taskHandler.calculateDueDateChain(startDate, taskDurations);
+
+        ZonedDateTime expected = startDate;
+        for (int i = 0; i < taskDurations.length; i++) {
+            expected = taskHandler.calculateDueDate(new Task(expected, taskDurations[i]));
+            Assertions.assertEquals(expected, chain[i]);
+        }
+    }
+
+    @Test
+    public void chainEndsWithCombinedLength() throws InvalidTaskDateException, TaskHandlerException {
+        ZoneId zone = ZoneId.of("America/New_York");
+        long startEpochSecond = ZonedDateTime.of(2024, 9, 2, 10, 15, 0, 0, zone).toEpochSecond();
+        int[] taskDurations = new int[5000];
+        Arrays.fill(taskDurations, 3);
+
+        long[] chain = taskHandler.calculateDueDateChain(startEpochSecond, taskDurations, zone);
+
+        Assertions.assertEquals(taskHandler.calculateDueDate(startEpochSecond, 15000, zone), chain[chain.length - 1]);
+        Assertions.assertEquals(taskHandler.calculateDueDate(startEpochSecond, 3, zone), chain[0]);
+    }
+
+    @Test
+    public void chainRejectsInvalidInput() {
+        ZonedDateTime weekendDate = ZonedDateTime.parse("09/07/2024 16:50:30 EST", dtFormat);
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 16:34:23 EST", dtFormat);
+        assertThrows(InvalidTaskDateException.class, () -> taskHandler.calculateDueDateChain(weekendDate, new int[]{1, 2}),
+                invalidTaskDateExceptionExpected);
+        assertThrows(TaskHandlerException.class, () -> taskHandler.calculateDueDateChain(startDate, new int[]{1, 0, 2}),
+                taskHandlerExceptionExpected);
+
+        //Validate Logging
+        long logCount = mockLogger.getLogEntries().stream()
+                .filter(l -> (l.getLevel() == Level.SEVERE && l.getMessage().contains("at position 1 in chain"))).count();
+        Assertions.assertEquals(1, logCount);
+    }
+    //endregion
+
+    //region Cache Tests
+    @Test
+    public void cachedResultsMatchAndCountHits() throws InvalidTaskDateException, TaskHandlerException {
+        DueDateCache cache = new DueDateCache(1000);
+        TaskHandler cachedHandler = TaskHandler.builder().logger(mockLogger).cache(cache).build();
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 16:00:00 EST", dtFormat);
+
+        for (int i = 0; i < 3; i++) {
+            for (int taskDuration : new int[]{4, 8, 16}) {
+                Assertions.assertEquals(taskHandler.calculateDueDate(new Task(startDate, taskDuration)),
+                        cachedHandler.calculateDueDate(new Task(startDate, taskDuration)));
+            }
+        }
+
+        CacheStats stats = cache.stats();
+        Assertions.assertEquals(6, stats.getHitCount());
+        Assertions.assertEquals(3, stats.getMissCount());
+        Assertions.assertEquals(3, stats.getSize());
+        Assertions.assertEquals(0, stats.getEvictionCount());
+    }
+
+    @Test
+    public void cacheDoesNotHoldInvalidTasks() {
+        DueDateCache cache = new DueDateCache(1000);
+        TaskHandler cachedHandler = TaskHandler.builder().logger(mockLogger).cache(cache).build();
+        ZonedDateTime weekendDate = ZonedDateTime.parse("09/07/2024 16:50:30 EST", dtFormat);
+        for (int i = 0; i < 2; i++) {
+            assertThrows(InvalidTaskDateException.class, () -> cachedHandler.calculateDueDate(new Task(weekendDate, 10)),
+                    invalidTaskDateExceptionExpected);
+        }
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(2, cache.stats().getMissCount());
+    }
+
+    @Test
+    public void cacheKeysIncludeSchedule() throws InvalidTaskDateException, TaskHandlerException {
+        DueDateCache cache = new DueDateCache(1000);
+        WorkSchedule earlySchedule = WorkSchedule.builder()
+                .workdays(DayOfWeek.MONDAY, DayOfWeek.FRIDAY, LocalTime.of(7, 0), LocalTime.of(15, 0))
+                .build();
+        TaskHandler standardHandler = TaskHandler.builder().logger(mockLogger).cache(cache).build();
+        TaskHandler earlyHandler = TaskHandler.builder().logger(mockLogger).schedule(earlySchedule).cache(cache).build();
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 10:00:00 EST", dtFormat);
+
+        ZonedDateTime standardDueDate = standardHandler.calculateDueDate(new Task(startDate, 8));
+        ZonedDateTime earlyDueDate = earlyHandler.calculateDueDate(new Task(startDate, 8));
+
+        Assertions.assertEquals(ZonedDateTime.parse("09/03/2024 10:00:00 EST", dtFormat), standardDueDate);
+        Assertions.assertEquals(ZonedDateTime.parse("09/03/2024 10:00:00 EST", dtFormat), earlyDueDate);
+        Assertions.assertEquals(2, cache.stats().getMissCount());
+        Assertions.assertEquals(2, cache.size());
+    }
+    //endregion
+
+    //region Concurrency Tests
+    @Test
+    public void sharedHandlerUnderLoad() throws Exception {
+        int threads = 32;
+        int tasksPerThread = 3000;
+        TaskHandlerMetrics metrics = new TaskHandlerMetrics();
+        TaskHandler sharedHandler = TaskHandler.builder().logger(mockLogger).metrics(metrics).build();
+        ZoneId zone = ZoneId.of("America/New_York");
+        long monday = ZonedDateTime.of(2024, 9, 2, 9, 0, 0, 0, zone).toEpochSecond();
+        long saturday = ZonedDateTime.of(2024, 9, 7, 10, 0, 0, 0, zone).toEpochSecond();
+        long[] expectedDueDates = new long[64];
+        for (int taskDuration = 1; taskDuration < expectedDueDates.length; taskDuration++) {
+            expectedDueDates[taskDuration] = taskHandler.calculateDueDate(monday, taskDuration, zone);
+        }
+
+        // Every thread does the same mix: mostly valid tasks, every tenth with a weekend start, every twentieth with no length
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> mismatches = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            mismatches.add(executor.submit(() -> {
+                start.await();
+                int wrong = 0;
+                for (int i = 0; i < tasksPerThread; i++) {
+                    int taskDuration = 1 + i % (expectedDueDates.length - 1);
+                    try {
+                        if (i % 10 == 0) {
+                            sharedHandler.calculateDueDate(saturday, taskDuration, zone);
+                            wrong++;
+                        } else if (i % 20 == 5) {
+                            sharedHandler.calculateDueDate(monday, 0, zone);
+                            wrong++;
+                        } else if (sharedHandler.calculateDueDate(monday, taskDuration, zone) != expectedDueDates[taskDuration]) {
+                            wrong++;
+                        }
+                    } catch (InvalidTaskDateException e) {
+                        wrong += i % 10 == 0 ? 0 : 1;
+                    } catch (TaskHandlerException e) {
+                        wrong += i % 20 == 5 ? 0 : 1;
+                    }
+                    if (i % 100 == 50 && sharedHandler.tryCalculateDueDate(new Task(Instant.ofEpochSecond(saturday).atZone(zone), 1)).isOk()) {
+                        wrong++;
+                    }
+                }
+                return wrong;
+            }));
+        }
+        start.countDown();
+        for (Future<Integer> mismatch : mismatches) {
+            Assertions.assertEquals(0, mismatch.get());
+        }
+        executor.shutdown();
+
+        long invalidDates = (long) threads * tasksPerThread / 10;
+        long invalidLengths = (long) threads * tasksPerThread / 20;
+        long sampledRejections = (long) threads * tasksPerThread / 100;
+        long sampledLogs = (sampledRejections + REJECTED_LOG_SAMPLE_RATE - 1) / REJECTED_LOG_SAMPLE_RATE;
+
+        //Validate Logging, nothing lost or duplicated
+        Assertions.assertEquals(invalidDates + invalidLengths + sampledLogs, mockLogger.getLogCount());
+        Assertions.assertEquals(invalidDates, mockLogger.getLogEntries().stream()
+                .filter(l -> (l.getLevel() == Level.SEVERE && l.getMessage().contains(invalidTaskDateLogMessage)
+                        && !l.getMessage().contains("rejected so far"))).count());
+        Assertions.assertEquals(invalidLengths, mockLogger.getLogEntries().stream()
+                .filter(l -> (l.getLevel() == Level.SEVERE && l.getMessage().contains(invalidTaskLengthLogMessage))).count());
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        Assertions.assertEquals((long) threads * tasksPerThread - invalidDates - invalidLengths, snapshot.getSuccessCount());
+        Assertions.assertEquals(invalidDates + sampledRejections, snapshot.getInvalidDateCount());
+        Assertions.assertEquals(invalidLengths, snapshot.getInvalidLengthCount());
+    }
+    //endregion
+
+    //region Due Date Index Tests
+    @Test
+    public void dueDateIndexCountsEachTaskOnce() throws InvalidTaskDateException, TaskHandlerException {
+        DueDateIndex index = new DueDateIndex(Duration.ofHours(1));
+        DueDateCache cache = new DueDateCache(1000);
+        TaskHandler indexedHandler = TaskHandler.builder().logger(mockLogger).cache(cache).index(index).build();
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 16:34:23 EST", dtFormat);
+        long from = startDate.toEpochSecond();
+        long to = startDate.plusWeeks(1).toEpochSecond();
+
+        // The second calculation is a cache hit, it still counts as the same task
+        ZonedDateTime dueDate = indexedHandler.calculateAndIndexDueDate(1, new Task(startDate, 20));
+        Assertions.assertEquals(dueDate, indexedHandler.calculateAndIndexDueDate(1, new Task(startDate, 20)));
+        Assertions.assertEquals(1, cache.stats().getHitCount());
+        Assertions.assertEquals(1, index.size());
+        Assertions.assertEquals(1, index.count(startDate.getZone(), from, to));
+
+        // Only calculations with an id are indexed, rejected ones never are
+        indexedHandler.calculateDueDate(new Task(startDate, 20));
+        ZonedDateTime weekendDate = ZonedDateTime.parse("09/07/2024 16:50:30 EST", dtFormat);
+        assertThrows(InvalidTaskDateException.class, () -> indexedHandler.calculateAndIndexDueDate(2, new Task(weekendDate, 10)),
+                invalidTaskDateExceptionExpected);
+        Assertions.assertEquals(1, index.count(startDate.getZone(), from, to));
+        Assertions.assertFalse(index.contains(2));
+
+        // Recalculating with a new length moves the task
+        ZonedDateTime longerDueDate = indexedHandler.calculateAndIndexDueDate(1, new Task(startDate, 30));
+        Assertions.assertArrayEquals(new long[]{longerDueDate.toEpochSecond()}, index.getDueDates(startDate.getZone(), from, to));
+        Assertions.assertTrue(index.remove(1));
+        Assertions.assertEquals(0, index.count(startDate.getZone(), from, to));
+    }
+
+    @Test
+    public void dueDateIndexCountsRangePerZone() throws InvalidTaskDateException, TaskHandlerException {
+        DueDateIndex index = new DueDateIndex(Duration.ofHours(1));
+        TaskHandler indexedHandler = TaskHandler.builder().logger(mockLogger).index(index).build();
+        ZoneId newYork = ZoneId.of("America/New_York");
+        ZoneId london = ZoneId.of("Europe/London");
+        ZonedDateTime monday = ZonedDateTime.of(2024, 9, 2, 9, 0, 0, 0, newYork);
+
+        long taskId = 0;
+        List<Long> newYorkDueDates = new ArrayList<>();
+        for (int hours = 1; hours <= 40; hours++) {
+            newYorkDueDates.add(indexedHandler.calculateAndIndexDueDate(taskId++, new Task(monday, hours)).toEpochSecond());
+        }
+        List<Long> londonDueDates = new ArrayList<>();
+        for (int i = 1; i < 20; i++) {
+            long start = ZonedDateTime.of(2024, 9, 2, 9 + i % 8, 15, 0, 0, london).toEpochSecond();
+            londonDueDates.add(indexedHandler.calculateAndIndexDueDate(taskId++, start, i, london));
+        }
+        Assertions.assertEquals(newYorkDueDates.size() + londonDueDates.size(), index.size());
+
+        // How many tasks come due between Tuesday 09:00 and Thursday 17:00, per zone
+        long from = monday.plusDays(1).toEpochSecond();
+        long to = monday.plusDays(3).withHour(17).toEpochSecond();
+        long expectedNewYork = newYorkDueDates.stream().filter(d -> d >= from && d <= to).count();
+        long expectedLondon = londonDueDates.stream().filter(d -> d >= from && d <= to).count();
+        Assertions.assertEquals(expectedNewYork, index.count(newYork, from, to));
+        Map<ZoneId, Long> byZone = index.countByZone(from, to);
+        Assertions.assertEquals(expectedNewYork, byZone.get(newYork));
+        Assertions.assertEquals(expectedLondon, byZone.get(london));
+
+        // Thursday 17:00 is included, it is the due date of the 32 hour task
+        Assertions.assertEquals(to, newYorkDueDates.get(31));
+        Assertions.assertTrue(index.remove(31));
+        Assertions.assertEquals(expectedNewYork - 1, index.count(newYork, from, to));
+    }
+    //endregion
 }
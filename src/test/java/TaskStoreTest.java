@@ -0,0 +1,103 @@
+import calculation.DueDateStatus;
+import exceptions.InvalidTaskDateException;
+import exceptions.TaskHandlerException;
+import logging.MockLogger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TaskStoreTest {
+
+    TaskHandler taskHandler;
+    DateTimeFormatter dtFormat = DateTimeFormatter.ofPattern("MM/dd/yyyy HH:mm:ss zzz");
+    MockLogger mockLogger = new MockLogger("TestLogger");
+
+    @BeforeEach
+    public void Setup() {
+        taskHandler = new TaskHandler(mockLogger);
+    }
+
+    @Test
+    public void taskStoreCalculatesInPlace() throws InvalidTaskDateException, TaskHandlerException {
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 16:34:23 EST", dtFormat);
+        ZonedDateTime weekendDate = ZonedDateTime.parse("09/07/2024 16:50:30 EST", dtFormat);
+        ZonedDateTime londonDate = ZonedDateTime.of(2024, 10, 25, 16, 0, 0, 0, ZoneId.of("Europe/London"));
+        TaskStore store = new TaskStore(4);
+        store.add(new Task(startDate, 20));
+        store.add(new Task(weekendDate, 10));
+        store.add(new Task(startDate, 0));
+        store.add(new Task(londonDate, 3));
+        Assertions.assertEquals(TaskStore.NOT_CALCULATED, store.getStatus(0));
+
+        Assertions.assertEquals(2, taskHandler.calculateDueDates(store));
+
+        TaskStore.TaskView view = store.view();
+        Assertions.assertEquals(DueDateStatus.OK, view.at(0).getStatus());
+        Assertions.assertEquals(taskHandler.calculateDueDate(new Task(startDate, 20)), view.getDueDateTime());
+        Assertions.assertEquals(startDate.toEpochSecond(), view.getStartEpochSecond());
+        Assertions.assertEquals(20, view.getTaskDuration());
+        Assertions.assertEquals(DueDateStatus.INVALID_START, store.getStatus(1));
+        Assertions.assertNull(view.at(1).getDueDateTime());
+        Assertions.assertEquals(DueDateStatus.INVALID_LENGTH, store.getStatus(2));
+        Assertions.assertEquals(taskHandler.calculateDueDate(new Task(londonDate, 3)), view.at(3).getDueDateTime());
+        Assertions.assertEquals(ZoneId.of("Europe/London"), store.getZone(3));
+        Assertions.assertEquals(londonDate, view.toTask().getStartDate());
+
+        //Validate Logging, one summary for the whole store
+        long logCount = mockLogger.getLogEntries().stream()
+                .filter(l -> (l.getLevel() == Level.WARNING && l.getMessage().contains("Rejected 2 of 4 tasks in store"))).count();
+        Assertions.assertEquals(1, logCount);
+    }
+
+    @Test
+    public void taskStoreBounds() {
+        TaskStore store = new TaskStore(1);
+        ZonedDateTime startDate = ZonedDateTime.parse("09/02/2024 16:34:23 EST", dtFormat);
+        store.add(new Task(startDate, 20));
+        assertThrows(IllegalStateException.class, () -> store.add(new Task(startDate, 20)));
+        assertThrows(IndexOutOfBoundsException.class, () -> store.getDueDate(1));
+        assertThrows(IllegalArgumentException.class, () -> new TaskStore(-1));
+
+        store.clear();
+        Assertions.assertEquals(0, store.size());
+        Assertions.assertEquals(0, taskHandler.calculateDueDates(store));
+    }
+
+    @Test
+    public void taskStoreMatchesSingleCalculations() throws TaskHandlerException {
+        List<ZoneId> zones = List.of(ZoneId.of("America/New_York"), ZoneId.of("Asia/Tokyo"), ZoneOffset.UTC);
+        Random random = new Random(11);
+        TaskStore store = new TaskStore(50000);
+        for (int i = 0; i < store.capacity(); i++) {
+            ZoneId zone = zones.get(random.nextInt(zones.size()));
+            long monday = ZonedDateTime.of(2024, 1, 1, 9, 0, 0, 0, zone).toEpochSecond();
+            store.add(monday + random.nextInt(400) * 86400L + random.nextInt(8 * 3600 + 1), random.nextInt(3000) - 10, zone);
+        }
+
+        taskHandler.calculateDueDates(store);
+
+        TaskStore.TaskView view = store.view();
+        for (int i = 0; i < store.size(); i++) {
+            view.at(i);
+            try {
+                long expected = taskHandler.calculateDueDate(view.getStartEpochSecond(), view.getTaskDuration(), view.getZone());
+                Assertions.assertEquals(DueDateStatus.OK, view.getStatus());
+                Assertions.assertEquals(expected, view.getDueDate());
+            } catch (InvalidTaskDateException e) {
+                Assertions.assertEquals(DueDateStatus.INVALID_START, view.getStatus());
+            } catch (TaskHandlerException e) {
+                Assertions.assertEquals(DueDateStatus.INVALID_LENGTH, view.getStatus());
+            }
+        }
+    }
+}
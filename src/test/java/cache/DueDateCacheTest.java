@@ -0,0 +1,142 @@
+package cache;
+
+import holidays.HolidayCalendar;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import schedule.WorkSchedule;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DueDateCacheTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final long MONDAY = ZonedDateTime.of(2024, 9, 2, 9, 0, 0, 0, NEW_YORK).toEpochSecond();
+
+    @Test
+    public void cacheCountsHitsAndMisses() {
+        DueDateCache cache = new DueDateCache(1000);
+        Assertions.assertEquals(DueDateCache.MISSING, get(cache, MONDAY, 8));
+        put(cache, MONDAY, 8, MONDAY + 86400);
+        Assertions.assertEquals(MONDAY + 86400, get(cache, MONDAY, 8));
+        Assertions.assertEquals(MONDAY + 86400, get(cache, MONDAY, 8));
+        Assertions.assertEquals(DueDateCache.MISSING, get(cache, MONDAY, 16));
+
+        CacheStats stats = cache.stats();
+        Assertions.assertEquals(2, stats.getHitCount());
+        Assertions.assertEquals(2, stats.getMissCount());
+        Assertions.assertEquals(1, stats.getSize());
+        Assertions.assertEquals(0, stats.getEvictionCount());
+
+        // Statistics outlive the entries
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals(DueDateCache.MISSING, get(cache, MONDAY, 8));
+        Assertions.assertEquals(3, cache.stats().getMissCount());
+    }
+
+    @Test
+    public void cacheKeysIncludeScheduleZoneAndHolidays() {
+        DueDateCache cache = new DueDateCache(1000);
+        WorkSchedule earlySchedule = WorkSchedule.builder()
+                .workdays(DayOfWeek.MONDAY, DayOfWeek.FRIDAY, LocalTime.of(7, 0), LocalTime.of(15, 0))
+                .build();
+        HolidayCalendar holidays = HolidayCalendar.of(List.of(LocalDate.of(2024, 9, 3)));
+        // Equal calendars that are different instances are different keys
+        HolidayCalendar sameHolidays = HolidayCalendar.of(List.of(LocalDate.of(2024, 9, 3)));
+        ZoneId utc = ZoneId.of("UTC");
+
+        cache.put(MONDAY, 8, NEW_YORK, WorkSchedule.STANDARD, HolidayCalendar.EMPTY, 1);
+        cache.put(MONDAY, 8, NEW_YORK, earlySchedule, HolidayCalendar.EMPTY, 2);
+        cache.put(MONDAY, 8, utc, WorkSchedule.STANDARD, HolidayCalendar.EMPTY, 3);
+        cache.put(MONDAY, 8, NEW_YORK, WorkSchedule.STANDARD, holidays, 4);
+
+        Assertions.assertEquals(1, cache.get(MONDAY, 8, NEW_YORK, WorkSchedule.STANDARD, HolidayCalendar.EMPTY));
+        Assertions.assertEquals(2, cache.get(MONDAY, 8, NEW_YORK, earlySchedule, HolidayCalendar.EMPTY));
+        Assertions.assertEquals(3, cache.get(MONDAY, 8, utc, WorkSchedule.STANDARD, HolidayCalendar.EMPTY));
+        Assertions.assertEquals(4, cache.get(MONDAY, 8, NEW_YORK, WorkSchedule.STANDARD, holidays));
+        Assertions.assertEquals(DueDateCache.MISSING, cache.get(MONDAY, 8, NEW_YORK, WorkSchedule.STANDARD, sameHolidays));
+        Assertions.assertEquals(4, cache.size());
+    }
+
+    @Test
+    public void cacheStaysBoundedAndKeepsHotKeys() {
+        DueDateCache cache = new DueDateCache(200);
+
+        // Hot tasks come back every thousand one off tasks, far more one offs in between than an LRU cache could hold
+        for (int second = 1; second < 20000; second++) {
+            if (second % 1000 == 1) {
+                for (int hour = 0; hour < 8; hour++) {
+                    lookUp(cache, MONDAY + hour * 3600L, 8);
+                }
+            }
+            lookUp(cache, MONDAY + second, 4);
+        }
+        Assertions.assertTrue(cache.size() <= 200);
+        Assertions.assertTrue(cache.stats().getEvictionCount() > 0);
+
+        long hitsBefore = cache.stats().getHitCount();
+        for (int hour = 0; hour < 8; hour++) {
+            lookUp(cache, MONDAY + hour * 3600L, 8);
+        }
+        Assertions.assertEquals(8, cache.stats().getHitCount() - hitsBefore);
+    }
+
+    @Test
+    public void cacheStaysConsistentUnderChurn() {
+        DueDateCache cache = new DueDateCache(300);
+        Random random = new Random(11);
+        // Few enough keys that they keep coming back, enough that entries are evicted and reinserted throughout
+        for (int i = 0; i < 200000; i++) {
+            long start = MONDAY + random.nextInt(2000);
+            int taskDuration = 1 + random.nextInt(2);
+            long dueDate = get(cache, start, taskDuration);
+            if (dueDate == DueDateCache.MISSING) {
+                put(cache, start, taskDuration, start * 3 + taskDuration);
+            } else {
+                Assertions.assertEquals(start * 3 + taskDuration, dueDate);
+            }
+        }
+        Assertions.assertTrue(cache.size() <= 300);
+        Assertions.assertTrue(cache.stats().getEvictionCount() > 0);
+
+        // Every entry held can still be found, and only once
+        long found = 0;
+        for (int second = 0; second < 2000; second++) {
+            for (int taskDuration = 1; taskDuration <= 2; taskDuration++) {
+                if (get(cache, MONDAY + second, taskDuration) != DueDateCache.MISSING) {
+                    found++;
+                }
+            }
+        }
+        Assertions.assertEquals(cache.size(), found);
+    }
+
+    @Test
+    public void cacheMaximumSizeIsValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new DueDateCache(0));
+        Assertions.assertEquals(1, new DueDateCache(1).getMaximumSize());
+    }
+
+    private static long get(DueDateCache cache, long startEpochSecond, int taskDuration) {
+        return cache.get(startEpochSecond, taskDuration, NEW_YORK, WorkSchedule.STANDARD, HolidayCalendar.EMPTY);
+    }
+
+    private static void put(DueDateCache cache, long startEpochSecond, int taskDuration, long dueDate) {
+        cache.put(startEpochSecond, taskDuration, NEW_YORK, WorkSchedule.STANDARD, HolidayCalendar.EMPTY, dueDate);
+    }
+
+    // Same get then put on a miss as the task handler does, the due date itself does not matter here
+    private static void lookUp(DueDateCache cache, long startEpochSecond, int taskDuration) {
+        if (get(cache, startEpochSecond, taskDuration) == DueDateCache.MISSING) {
+            put(cache, startEpochSecond, taskDuration, startEpochSecond + taskDuration * 3600L);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package index;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DueDateIndexTest {
+
+    private static final ZoneId TOKYO = ZoneId.of("Asia/Tokyo");
+    private static final long BASE = 1_725_000_000L;
+
+    @Test
+    public void dueDateIndexMatchesLinearScan() {
+        DueDateIndex index = new DueDateIndex(Duration.ofMinutes(15));
+        Random random = new Random(5);
+        long[] dueDates = new long[20000];
+        for (int taskId = 0; taskId < dueDates.length; taskId++) {
+            // Plenty of tasks share a due date, as they do on the hour
+            dueDates[taskId] = BASE + (random.nextBoolean() ? random.nextInt(30 * 86400) : random.nextInt(720) * 3600L);
+            Assertions.assertTrue(index.put(taskId, TOKYO, dueDates[taskId]));
+        }
+        // Moving and removing tasks, removed ones are marked with -1
+        for (int i = 0; i < 5000; i++) {
+            int taskId = random.nextInt(dueDates.length);
+            if (i % 2 == 0) {
+                dueDates[taskId] = BASE + random.nextInt(30 * 86400);
+                Assertions.assertEquals(!index.contains(taskId), index.put(taskId, TOKYO, dueDates[taskId]));
+            } else {
+                Assertions.assertEquals(dueDates[taskId] >= 0, index.remove(taskId));
+                dueDates[taskId] = -1;
+            }
+        }
+        Assertions.assertFalse(index.remove(dueDates.length));
+
+        long[] sorted = Arrays.stream(dueDates).filter(d -> d >= 0).sorted().toArray();
+        Assertions.assertEquals(sorted.length, index.size());
+        for (int i = 0; i < 200; i++) {
+            long from = BASE - 3600 + random.nextInt(32 * 86400);
+            long to = from + (i % 4 == 0 ? random.nextInt(900) : random.nextInt(10 * 86400));
+            long[] expected = Arrays.stream(sorted).filter(d -> d >= from && d <= to).toArray();
+            Assertions.assertEquals(expected.length, index.count(TOKYO, from, to));
+            Assertions.assertArrayEquals(expected, index.getDueDates(TOKYO, from, to));
+        }
+        Assertions.assertEquals(0, index.count(TOKYO, BASE + 10, BASE));
+        Assertions.assertEquals(0, index.count(ZoneId.of("UTC"), BASE, BASE + 30 * 86400));
+
+        index.clear();
+        Assertions.assertEquals(0, index.size());
+        Assertions.assertEquals(0, index.count(TOKYO, BASE, BASE + 30 * 86400));
+    }
+
+    @Test
+    public void dueDateIndexMovesTasksBetweenZones() {
+        DueDateIndex index = new DueDateIndex(Duration.ofHours(1));
+        ZoneId london = ZoneId.of("Europe/London");
+        Assertions.assertTrue(index.put(7, TOKYO, BASE));
+        Assertions.assertFalse(index.put(7, TOKYO, BASE));
+        Assertions.assertFalse(index.put(7, london, BASE));
+        Assertions.assertEquals(1, index.size());
+        Assertions.assertEquals(0, index.count(TOKYO, BASE, BASE));
+        Assertions.assertEquals(1, index.count(london, BASE, BASE));
+        Assertions.assertEquals(List.of(london), List.copyOf(index.countByZone(BASE, BASE).keySet()));
+    }
+
+    @Test
+    public void dueDateIndexPutsFromManyThreads() throws Exception {
+        // Threads race to put and move the same tasks, each must still be counted exactly once
+        DueDateIndex index = new DueDateIndex(Duration.ofHours(1));
+        int threads = 8;
+        int tasks = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int round = 0; round < 20; round++) {
+                    for (int taskId = 0; taskId < tasks; taskId++) {
+                        index.put(taskId, TOKYO, BASE + (long) (taskId + thread + round) * 600);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        Assertions.assertEquals(tasks, index.size());
+        Assertions.assertEquals(tasks, index.count(TOKYO, BASE, BASE + (long) (tasks + threads + 20) * 600));
+    }
+
+    @Test
+    public void dueDateIndexBucketWidthIsValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new DueDateIndex(Duration.ofMillis(500)));
+    }
+}
@@ -0,0 +1,102 @@
+package logging;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MockLoggerTest {
+
+    @Test
+    public void mockLoggerKeepsMostRecentRecords() {
+        MockLogger smallLogger = new MockLogger("SmallLogger", 4);
+        for (int i = 0; i < 10; i++) {
+            smallLogger.log(Level.INFO, "message " + i);
+        }
+        Assertions.assertEquals(10, smallLogger.getLogCount());
+        List<String> messages = smallLogger.getLogEntries().stream().map(l -> l.getMessage()).toList();
+        Assertions.assertEquals(List.of("message 6", "message 7", "message 8", "message 9"), messages);
+        Assertions.assertEquals(List.of(6L, 7L, 8L, 9L), smallLogger.getLogEntries().stream().map(LogRecord::getSequenceNumber).toList());
+    }
+
+    @Test
+    public void mockLoggerCapacityIsValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new MockLogger("InvalidLogger", 0));
+        Assertions.assertTrue(new MockLogger("OneRecordLogger", 1).getLogEntries().isEmpty());
+    }
+
+    @Test
+    public void mockLoggerWrapsUnderContention() throws Exception {
+        // Far more writers than slots, so writers a whole buffer apart keep landing on the same slot
+        int capacity = 2;
+        int threads = 16;
+        int recordsPerThread = 50000;
+        MockLogger smallLogger = new MockLogger("SmallLogger", capacity);
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        // Every copy taken while writers race must hold records of the last capacity sequences in order,
+        // a record paired with another's sequence shows up as a thread's records going backwards
+        Future<Integer> reader = executor.submit(() -> {
+            start.await();
+            int copies = 0;
+            while (writing.get()) {
+                long end = smallLogger.getLogCount();
+                List<LogRecord> records = smallLogger.getLogEntries();
+                long previous = end - capacity - 1;
+                int[] lastRecordOfThread = new int[threads];
+                Arrays.fill(lastRecordOfThread, -1);
+                for (LogRecord record : records) {
+                    Assertions.assertTrue(record.getSequenceNumber() > previous, "records out of order or too old");
+                    previous = record.getSequenceNumber();
+                    String[] words = record.getMessage().split(" ");
+                    int thread = Integer.parseInt(words[1]);
+                    int index = Integer.parseInt(words[3]);
+                    Assertions.assertTrue(index > lastRecordOfThread[thread], "record paired with the wrong sequence");
+                    lastRecordOfThread[thread] = index;
+                }
+                copies++;
+            }
+            return copies;
+        });
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < recordsPerThread; i++) {
+                    smallLogger.log(Level.INFO, "thread " + thread + " record " + i);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        writing.set(false);
+        Assertions.assertTrue(reader.get() > 0);
+        executor.shutdown();
+
+        long total = (long) threads * recordsPerThread;
+        Assertions.assertEquals(total, smallLogger.getLogCount());
+        List<Long> sequences = smallLogger.getLogEntries().stream().map(LogRecord::getSequenceNumber).toList();
+        List<Long> expected = new ArrayList<>();
+        for (long sequence = total - capacity; sequence < total; sequence++) {
+            expected.add(sequence);
+        }
+        Assertions.assertEquals(expected, sequences);
+    }
+}
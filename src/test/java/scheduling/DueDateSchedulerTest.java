@@ -0,0 +1,170 @@
+package scheduling;
+
+import logging.MockLogger;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.logging.Level;
+
+public class DueDateSchedulerTest {
+
+    MockLogger mockLogger = new MockLogger("TestLogger");
+
+    // Clock that only moves when told to
+    private static class ManualClock extends Clock {
+        private long epochSecond;
+
+        ManualClock(long epochSecond) {
+            this.epochSecond = epochSecond;
+        }
+
+        void set(long epochSecond) {
+            this.epochSecond = epochSecond;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochSecond(epochSecond);
+        }
+    }
+
+    @Test
+    public void schedulerFiresAtDueDate() {
+        ZonedDateTime startDate = ZonedDateTime.of(2024, 9, 2, 16, 34, 23, 0, ZoneId.of("America/New_York"));
+        ZonedDateTime dueDate = startDate.plusDays(3).withHour(12);
+        ManualClock clock = new ManualClock(startDate.toEpochSecond());
+        DueDateScheduler scheduler = new DueDateScheduler(clock, mockLogger);
+        List<Long> firedAt = new ArrayList<>();
+        scheduler.schedule(dueDate, () -> firedAt.add(clock.instant().getEpochSecond()));
+        Assertions.assertEquals(1, scheduler.getOutstandingCount());
+
+        clock.set(dueDate.toEpochSecond() - 1);
+        Assertions.assertEquals(0, scheduler.advance());
+        clock.set(dueDate.toEpochSecond());
+        Assertions.assertEquals(1, scheduler.advance());
+        Assertions.assertEquals(List.of(dueDate.toEpochSecond()), firedAt);
+        Assertions.assertEquals(0, scheduler.getOutstandingCount());
+    }
+
+    @Test
+    public void schedulerJumpsOverIdleTime() {
+        long start = ZonedDateTime.of(2024, 9, 2, 9, 0, 0, 0, ZoneOffset.UTC).toEpochSecond();
+        ManualClock clock = new ManualClock(start);
+        DueDateScheduler scheduler = new DueDateScheduler(clock, mockLogger);
+        long dueDate = start + 200L * 86400 + 12345;
+        List<Long> firedAt = new ArrayList<>();
+        scheduler.schedule(dueDate, () -> firedAt.add(clock.instant().getEpochSecond()));
+        long farOff = 1000L * 365 * 86400;
+        scheduler.schedule(start + farOff, () -> firedAt.add(clock.instant().getEpochSecond()));
+
+        // A paused ticker catching up on a year, then on centuries, only visits the slots that hold callbacks
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            clock.set(start + 365L * 86400);
+            Assertions.assertEquals(1, scheduler.advance());
+            clock.set(start + farOff - 1);
+            Assertions.assertEquals(0, scheduler.advance());
+        });
+        Assertions.assertEquals(List.of(start + 365L * 86400), firedAt);
+
+        clock.set(start + farOff);
+        Assertions.assertEquals(1, scheduler.advance());
+        Assertions.assertEquals(List.of(start + 365L * 86400, start + farOff), firedAt);
+        Assertions.assertEquals(0, scheduler.getOutstandingCount());
+    }
+
+    @Test
+    public void schedulerCancelsAndFiresOverdue() {
+        ManualClock clock = new ManualClock(1_000_000);
+        DueDateScheduler scheduler = new DueDateScheduler(clock, mockLogger);
+        List<String> fired = new ArrayList<>();
+        DueDateScheduler.ScheduledCallback cancelledBeforeInsert = scheduler.schedule(1_000_100, () -> fired.add("cancelled early"));
+        Assertions.assertTrue(cancelledBeforeInsert.cancel());
+        DueDateScheduler.ScheduledCallback cancelledInWheel = scheduler.schedule(1_000_100, () -> fired.add("cancelled late"));
+        scheduler.schedule(999_000, () -> fired.add("overdue"));
+        scheduler.schedule(1_000_050, () -> {
+            throw new IllegalStateException("escalation failed");
+        });
+        scheduler.schedule(1_000_100, () -> fired.add("due"));
+
+        Assertions.assertEquals(1, scheduler.advance());
+        Assertions.assertEquals(List.of("overdue"), fired);
+        Assertions.assertTrue(cancelledInWheel.cancel());
+        Assertions.assertFalse(cancelledInWheel.cancel());
+
+        clock.set(1_000_200);
+        Assertions.assertEquals(2, scheduler.advance());
+        Assertions.assertEquals(List.of("overdue", "due"), fired);
+        Assertions.assertTrue(cancelledBeforeInsert.isCancelled());
+        Assertions.assertEquals(0, scheduler.getOutstandingCount());
+
+        //Validate Logging, a failing callback does not stop the others
+        long logCount = mockLogger.getLogEntries().stream()
+                .filter(l -> (l.getLevel() == Level.SEVERE && l.getMessage().contains("Callback for due date 1000050 failed"))).count();
+        Assertions.assertEquals(1, logCount);
+    }
+
+    @Test
+    public void schedulerFiresManyCallbacksOnTime() {
+        long start = ZonedDateTime.of(2024, 9, 2, 9, 0, 0, 0, ZoneOffset.UTC).toEpochSecond();
+        ManualClock clock = new ManualClock(start);
+        DueDateScheduler scheduler = new DueDateScheduler(clock, mockLogger);
+        Random random = new Random(3);
+        int count = 200000;
+        long[] due = new long[count];
+        long[] firedAt = new long[count];
+        DueDateScheduler.ScheduledCallback[] callbacks = new DueDateScheduler.ScheduledCallback[count];
+        for (int i = 0; i < count; i++) {
+            int index = i;
+            // Mostly within a day, some over a year out
+            due[i] = start + (random.nextInt(10) == 0 ? random.nextInt(400 * 86400) : random.nextInt(86400));
+            callbacks[i] = scheduler.schedule(due[i], () -> firedAt[index] = clock.instant().getEpochSecond());
+        }
+        int cancelled = 0;
+        for (int i = 0; i < count; i += 7) {
+            callbacks[i].cancel();
+            cancelled++;
+        }
+
+        // Irregular steps, as a ticker that is sometimes late would take, and the odd pause of up to an hour
+        long fired = 0;
+        List<Long> advancedTo = new ArrayList<>();
+        for (long now = start; now < start + 401 * 86400L; now += random.nextInt(1000) == 0 ? 1 + random.nextInt(3600) : 1 + random.nextInt(3)) {
+            clock.set(now);
+            fired += scheduler.advance();
+            advancedTo.add(now);
+        }
+
+        // Each callback fires on the first advance that reaches its due date
+        Assertions.assertEquals(count - cancelled, fired);
+        for (int i = 0; i < count; i++) {
+            if (i % 7 == 0) {
+                Assertions.assertEquals(0, firedAt[i]);
+            } else {
+                int firstReaching = Collections.binarySearch(advancedTo, due[i]);
+                long expected = advancedTo.get(firstReaching >= 0 ? firstReaching : -firstReaching - 1);
+                Assertions.assertEquals(expected, firedAt[i], "fired late or early");
+            }
+        }
+        Assertions.assertEquals(0, scheduler.getOutstandingCount());
+    }
+}